@@ -0,0 +1,69 @@
+package com.jz.jsonpath.benchmark;
+
+import com.google.gson.JsonParser;
+import com.jz.jsonpath.CompiledJsonPath;
+import com.jz.jsonpath.FastjsonNodeModel;
+import com.jz.jsonpath.GsonNodeModel;
+import com.jz.jsonpath.JsonNodeModel;
+import com.jz.jsonpath.NodeWithPath;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and query throughput of each {@link JsonNodeModel}, with the ignored paths of the fixture,
+ * to pick the backend for a payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BackendBenchmark {
+    @Param({Fixtures.US, Fixtures.AU})
+    public String file;
+
+    @Param({"gson", "fastjson"})
+    public String backend;
+
+    @Param({
+            "$.modules.BINSUMMARY.minView.actions[0]"
+            , "RETURNS.maxView.value[*].label.textSpans[0]"
+            , "RETURNS.maxView.value[*].label.textSpans[?(@.text =~ \"(.*)\\d{3,}(.*)\" || @.text in {\"Have a nice day\", \"Return policy\"})]"
+            , "URL"
+    })
+    public String path;
+
+    private String json;
+    private Object source;
+    @SuppressWarnings("rawtypes")
+    private JsonNodeModel model;
+    private CompiledJsonPath compiled;
+
+    @Setup
+    public void setUp() throws Exception {
+        json = Fixtures.read(file);
+        model = "gson".equals(backend) ? GsonNodeModel.INSTANCE : FastjsonNodeModel.INSTANCE;
+        source = parse();
+        compiled = CompiledJsonPath.compile(path, false, Fixtures.ignoredPaths(file));
+    }
+
+    @Benchmark
+    public Object parse() {
+        return "gson".equals(backend) ? JsonParser.parseString(json) : FastjsonNodeModel.parse(json);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<NodeWithPath<Object>> query() throws Exception {
+        return compiled.evaluate(source, (JsonNodeModel<Object>) model);
+    }
+
+    // what a request pays for a document it has not parsed yet;
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<NodeWithPath<Object>> parseAndQuery() throws Exception {
+        return compiled.evaluate(parse(), (JsonNodeModel<Object>) model);
+    }
+}
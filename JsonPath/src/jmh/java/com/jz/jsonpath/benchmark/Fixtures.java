@@ -0,0 +1,86 @@
+package com.jz.jsonpath.benchmark;
+
+import com.jz.jsonpath.Utils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The json files and the JsonPaths of TestJsonPath, shared by the benchmarks.
+ */
+final class Fixtures {
+    static final String US = "us.json";
+    static final String AU = "au.json";
+
+    static final String[] PATHS = new String[]{
+            "$.modules.BINSUMMARY.minView.actions[0]"
+            , "modules.SELLERPRESENCE.sellerName.action.URL"
+            , "RETURNS.maxView.value.length()"
+            , "RETURNS.maxView.value[0:].label"
+            , "RETURNS.maxView.value[*].label.textSpans[0]"
+            , "RETURNS.maxView.value[1,3,4].label.textSpans[0].text"
+            , "RETURNS.maxView.value[1,3,4].label.textSpans[?(@.text == \"Refund\" || @.text == \"Return policy\")].text"
+            , "RETURNS.maxView.value[*].label.textSpans[?(@.text =~ \"(.*)\\d{3,}(.*)\" || @.text in {\"Have a nice day\", \"Return policy\"})]"
+            , "URL"
+            , "RETURNS.maxView.value[1:3]"
+            , "RETURNS.maxView.value[-3:-1]"
+            , "RETURNS.maxView.value[-2]"
+    };
+
+    // content of [] of the filtered paths above;
+    static final String[] FILTERS = new String[]{
+            "?(@.text == \"Refund\" || @.text == \"Return policy\")"
+            , "?(@.text =~ \"(.*)\\d{3,}(.*)\" || @.text in {\"Have a nice day\", \"Return policy\"})"
+    };
+
+    static final String[] US_IGNORED_PATHS = new String[]{
+            "PICTURE.mediaList[0].image.originalImg.URL"
+            , "RETURNS.maxView.value[3].value[0].textSpans[0].action.URL"
+            , "THIRD_PARTY_RESOURCES.js[0].url"
+            , "BINSUMMARY.minView.actions[1].action.URL"
+            , "$.modules.WATCH.watching.watchAction.action.URL"
+            , "$.modules.WATCH.watch.watchAction.action.URL"
+            , "BINSUMMARY.minView.actions[2].value.cartSigninUrl.URL"
+    };
+
+    static final String[] AU_IGNORED_PATHS = new String[]{
+            "modules.SELLERPRESENCE.profileLogo.URL"
+            , "modules.COMMITTOBUY.redirect.url"
+            , "modules.COMMITTOBUY.fallBackUrl.URL"
+            , "modules.SELLERPRESENCE.askSeller.action.URL"
+            , "modules.SELLERPRESENCE.sellerName.action.URL"
+            , "$.modules.PICTURE"
+            , "$.modules.ITEMDESC.itemDescription.action.URL"
+            , "$.modules.EBAYGUARANTEE.embg.infoLink.URL"
+            , "$.modules.OTHER_ACTIONS.soltAction.action.URL"
+            , "$.modules.OTHER_ACTIONS.reportItemAction.action.URL"
+            , "$.modules.OTHER_ACTIONS.surveyAction.action.URL"
+            , "$.modules.INCENTIVES.incentivesURL.URL"
+            , "$.modules.BID_LAYER.thumbnail.URL"
+            , "$.modules.BID_LAYER.reviewBidAction.action.URL"
+            , "$.modules.BID_LAYER.confirmBidAction.action.URL"
+            , "$.modules.BIDSUMMARY.bidAction.action.URL"
+            , "$.modules.TOPRATEDSELLER.topRatedInfo.logo.action.URL"
+            , "$.modules.RSPSECTION.minView.logo.action.URL"
+            , "$.modules.THIRD_PARTY_RESOURCES.js[*].url"
+            , "$.modules.BINSUMMARY.minView.actions[0,1,2].action.URL"
+            , "$.modules.HANDLINGCONTENT.value[*].textSpans[1].action.URL"
+            , "$.modules.RETURNS.maxView.value[3:5]"
+            , "$.modules.BID_LAYER.powerbidButtons[*].action.URL"
+            , "$.modules.REWARDS.value.textSpans[1].action.URL"
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param file us.json or au.json, read from src/test/java, run the benchmarks from the project directory;
+     */
+    static String read(String file) throws IOException {
+        return Utils.convertFormattedJson2Raw(new File("./src/test/java/" + file));
+    }
+
+    static String[] ignoredPaths(String file) {
+        return AU.equals(file) ? AU_IGNORED_PATHS : US_IGNORED_PATHS;
+    }
+}
@@ -0,0 +1,32 @@
+package com.jz.jsonpath.benchmark;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the fixtures into a JsonObject, the cost every JsonPath.get(String ...) pays before the query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParseBenchmark {
+    @Param({Fixtures.US, Fixtures.AU})
+    public String file;
+
+    private String json;
+
+    @Setup
+    public void setUp() throws Exception {
+        json = Fixtures.read(file);
+    }
+
+    @Benchmark
+    public JsonObject parse() {
+        return JsonParser.parseString(json).getAsJsonObject();
+    }
+}
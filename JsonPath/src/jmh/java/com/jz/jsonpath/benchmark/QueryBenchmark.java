@@ -0,0 +1,97 @@
+package com.jz.jsonpath.benchmark;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.jz.jsonpath.CompiledJsonPath;
+import com.jz.jsonpath.JsonDocumentIndex;
+import com.jz.jsonpath.JsonElementWithPath;
+import com.jz.jsonpath.JsonPath;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One sample path of TestJsonPath end to end, with the ignored paths of the fixture.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class QueryBenchmark {
+    @Param({Fixtures.US, Fixtures.AU})
+    public String file;
+
+    @Param({"false", "true"})
+    public boolean ignoreCase;
+
+    @Param({
+            "$.modules.BINSUMMARY.minView.actions[0]"
+            , "modules.SELLERPRESENCE.sellerName.action.URL"
+            , "RETURNS.maxView.value.length()"
+            , "RETURNS.maxView.value[0:].label"
+            , "RETURNS.maxView.value[*].label.textSpans[0]"
+            , "RETURNS.maxView.value[1,3,4].label.textSpans[0].text"
+            , "RETURNS.maxView.value[1,3,4].label.textSpans[?(@.text == \"Refund\" || @.text == \"Return policy\")].text"
+            , "RETURNS.maxView.value[*].label.textSpans[?(@.text =~ \"(.*)\\d{3,}(.*)\" || @.text in {\"Have a nice day\", \"Return policy\"})]"
+            , "URL"
+            , "RETURNS.maxView.value[1:3]"
+            , "RETURNS.maxView.value[-3:-1]"
+            , "RETURNS.maxView.value[-2]"
+    })
+    public String path;
+
+    private String json;
+    private JsonObject source;
+    private String[] ignoredPaths;
+    private CompiledJsonPath compiled;
+    private JsonDocumentIndex index;
+    private JsonDocumentIndex keyIndex;
+
+    @Setup
+    public void setUp() throws Exception {
+        json = Fixtures.read(file);
+        source = JsonParser.parseString(json).getAsJsonObject();
+        ignoredPaths = Fixtures.ignoredPaths(file);
+        compiled = CompiledJsonPath.compile(path, ignoreCase, ignoredPaths);
+        index = JsonDocumentIndex.of(source);
+        keyIndex = JsonDocumentIndex.of(source, true);
+    }
+
+    @Benchmark
+    public List<JsonElementWithPath> get() throws Exception {
+        return JsonPath.get(source, path, ignoreCase, ignoredPaths);
+    }
+
+    @Benchmark
+    public List<JsonElementWithPath> compiled() throws Exception {
+        return compiled.evaluate(source);
+    }
+
+    // against the index built once in setUp, i.e. the cost of one more query on the same document;
+    @Benchmark
+    public List<JsonElementWithPath> indexed() throws Exception {
+        return compiled.evaluate(index);
+    }
+
+    // partial paths start from the rows of their rarest key;
+    @Benchmark
+    public List<JsonElementWithPath> keyIndexed() throws Exception {
+        return compiled.evaluate(keyIndex);
+    }
+
+    // fork/join tasks, the fixtures are small so this mostly measures the overhead of the tasks;
+    @Benchmark
+    public List<JsonElementWithPath> parallel() throws Exception {
+        return compiled.evaluate(source, ForkJoinPool.commonPool(), 8);
+    }
+
+    // reads the json text instead of the parsed JsonObject;
+    @Benchmark
+    public List<JsonElementWithPath> stream() throws Exception {
+        return compiled.evaluate(new StringReader(json));
+    }
+}
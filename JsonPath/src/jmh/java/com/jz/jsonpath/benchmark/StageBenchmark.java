@@ -0,0 +1,110 @@
+package com.jz.jsonpath.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.jz.jsonpath.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stages of a query measured one by one, each over all the sample paths of TestJsonPath:
+ * getFilters, getJsonArrayMap, traversal (compiled paths, no ignored paths, one by one or as a batch),
+ * filter evaluation and applyIgnoredPaths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StageBenchmark {
+    @Param({Fixtures.US, Fixtures.AU})
+    public String file;
+
+    @Param({"false", "true"})
+    public boolean ignoreCase;
+
+    private JsonObject source;
+    private String[] ignoredPaths;
+    private CompiledJsonPath[] compiled;
+    private List<List<Condition>> conditions;
+    private List<JsonObject> elements;
+    private List<JsonElementWithPath> candidates;
+    private Map<String, JsonArray> cachedJsonArrays;
+
+    @Setup
+    public void setUp() throws Exception {
+        source = JsonParser.parseString(Fixtures.read(file)).getAsJsonObject();
+        ignoredPaths = Fixtures.ignoredPaths(file);
+
+        compiled = new CompiledJsonPath[Fixtures.PATHS.length];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = CompiledJsonPath.compile(Fixtures.PATHS[i], ignoreCase, null);
+        }
+
+        conditions = new ArrayList<>();
+        for (String filter : Fixtures.FILTERS) {
+            conditions.add(Condition.getConditions(filter));
+        }
+
+        cachedJsonArrays = Utils.getJsonArrayMap(source, ignoreCase);
+        elements = new ArrayList<>();
+        for (JsonArray ja : cachedJsonArrays.values()) {
+            for (JsonElement je : ja) {
+                if (je.isJsonObject()) {
+                    elements.add(je.getAsJsonObject());
+                }
+            }
+        }
+
+        candidates = JsonPath.get(source, "URL", ignoreCase, null);
+    }
+
+    @Benchmark
+    public void getFilters(Blackhole bh) throws Exception {
+        for (String path : Fixtures.PATHS) {
+            bh.consume(JsonPath.getFilters(path, ignoreCase));
+        }
+    }
+
+    @Benchmark
+    public Map<String, JsonArray> getJsonArrayMap() {
+        return Utils.getJsonArrayMap(source, ignoreCase);
+    }
+
+    @Benchmark
+    public void traversal(Blackhole bh) throws Exception {
+        for (CompiledJsonPath path : compiled) {
+            bh.consume(path.evaluate(source));
+        }
+    }
+
+    // the same paths as traversal, evaluated by one shared traversal;
+    @Benchmark
+    public List<List<JsonElementWithPath>> batch() throws Exception {
+        return CompiledJsonPath.evaluate(source, Arrays.asList(compiled));
+    }
+
+    // every filter of the sample paths against every JsonObject in a JsonArray;
+    @Benchmark
+    public void filter(Blackhole bh) throws Exception {
+        for (List<Condition> c : conditions) {
+            for (JsonObject jo : elements) {
+                bh.consume(JsonPath.isMatchingConditions(jo, c));
+            }
+        }
+    }
+
+    // the ignored paths of TestJsonPath against the candidates of "URL";
+    @Benchmark
+    public List<JsonElementWithPath> applyIgnoredPaths() throws Exception {
+        return JsonPath.applyIgnoredPaths(new ArrayList<>(candidates), ignoredPaths, ignoreCase, source, cachedJsonArrays);
+    }
+}
@@ -0,0 +1,298 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.*;
+
+/**
+ * Evaluates many paths against one document with a single BFS.
+ * <p>
+ * Array steps are filtered when the BFS reaches the elements, no getJsonArrayMap is needed.
+ * <p>
+ * Every queued node carries the ids of the partial paths which are in the middle of a match, along with their
+ * {@link PathMatcher} states. A key is only checked against those paths and the paths starting with that key,
+ * which are looked up in a map, so the cost of a node does not grow with the number of paths that cannot match it.
+ * Absolute paths never traverse the whole document, they are walked one by one by {@link CompiledJsonPath}.
+ */
+final class BatchEvaluator {
+    private static final int[] NO_IDS = new int[0];
+    private static final int[][] NO_STATES = new int[0][];
+
+    private final CompiledJsonPath[] paths;
+
+    BatchEvaluator(List<CompiledJsonPath> paths) {
+        this.paths = paths.toArray(new CompiledJsonPath[paths.size()]);
+    }
+
+    /**
+     * @return the results in the order of the paths
+     */
+    List<List<JsonElementWithPath>> evaluate(JsonObject source) throws Exception {
+        return evaluate(source, null);
+    }
+
+    /**
+     * Same as {@link #evaluate(JsonObject)}, partial paths are matched against the nodes of the index.
+     */
+    List<List<JsonElementWithPath>> evaluate(JsonDocumentIndex index) throws Exception {
+        return evaluate((index == null) ? null : index.getSource(), index);
+    }
+
+    private List<List<JsonElementWithPath>> evaluate(JsonObject source, JsonDocumentIndex index) throws Exception {
+        List<List<JsonElementWithPath>> results = new ArrayList<>(paths.length);
+        List<Integer> partial = new ArrayList<>();
+        for (int i = 0; i < paths.length; i++) {
+            if (source == null || source.isJsonNull()) {
+                results.add(new ArrayList<JsonElementWithPath>());
+            } else if (index != null && (index.hasKeys() || paths[i].target().isAbsolute(index))) {
+                // with the key index, a partial path jumps to the rows of its keys, cheaper than a shared scan;
+                results.add(paths[i].evaluate(index));
+            } else if (index == null && paths[i].target().isAbsolute(source)) {
+                results.add(paths[i].evaluate(source));
+            } else {
+                results.add(null);
+                partial.add(i);
+            }
+        }
+
+        if (!partial.isEmpty()) {
+            traverse(source, index, partial, results);
+        }
+        return results;
+    }
+
+    private void traverse(JsonObject source, JsonDocumentIndex index, List<Integer> partial,
+                          List<List<JsonElementWithPath>> results) throws Exception {
+        int n = partial.size();
+        CompiledJsonPath[] targets = new CompiledJsonPath[n];
+        PathMatcher[] matchers = new PathMatcher[n];
+        List<List<JsonElementWithPath>> matches = new ArrayList<>(n);
+        Starters starters = new Starters();
+        for (int id = 0; id < n; id++) {
+            targets[id] = paths[partial.get(id)].target();
+            matchers[id] = targets[id].getRelativeMatcher();
+            matches.add(new ArrayList<JsonElementWithPath>());
+            starters.add(matchers[id], id);
+        }
+
+        if (index != null) {
+            // rows are in BFS order and a parent comes before its children, so the table replaces the queue;
+            Visit[] visits = new Visit[index.size()];
+            visits[0] = new Visit(source, NO_IDS, NO_STATES);
+            visits[0].node = PathNode.ROOT;
+            // the elements of an array are consecutive rows, its ranges are resolved at its first element;
+            int indexed = -1;
+            BitSet[][] indexes = null;
+            for (int row = 1; row < visits.length; row++) {
+                int parent = index.getParent(row);
+                Visit org = visits[parent];
+                PathNode node = index.getNode(row);
+                if (node.isIndex()) {
+                    JsonArray ja = org.jsonElement.getAsJsonArray();
+                    if (parent != indexed) {
+                        indexed = parent;
+                        indexes = getIndexes(org, ja.size(), matchers);
+                    }
+                    visits[row] = onIndex(org, node.getIndex(), ja, indexes, matchers);
+                } else {
+                    visits[row] = onKey(org, node.getKey(), index.getElement(row), matchers, starters.get(node.getKey()));
+                }
+                visits[row].node = node;
+                addMatches(visits[row], matchers, matches);
+            }
+        } else {
+            Queue<Visit> queue = new ArrayDeque<>();
+            Visit root = new Visit(source, NO_IDS, NO_STATES);
+            root.node = PathNode.ROOT;
+            queue.offer(root);
+            while (!queue.isEmpty()) {
+                Visit org = queue.poll();
+                JsonElement je = org.jsonElement;
+
+                if (je.isJsonArray()) {
+                    JsonArray ja = je.getAsJsonArray();
+                    // the ranges of the array steps are resolved against the length once, not for every element;
+                    BitSet[][] indexes = getIndexes(org, ja.size(), matchers);
+                    for (int j = 0; j < ja.size(); j++) {
+                        Visit child = onIndex(org, j, ja, indexes, matchers);
+                        if (isVisited(child, matchers)) {
+                            child.node = org.node.child(j);
+                            offer(queue, child, matchers, matches);
+                        }
+                    }
+                } else if (je.isJsonObject()) {
+                    for (Map.Entry<String, JsonElement> entry : je.getAsJsonObject().entrySet()) {
+                        Visit child = onKey(org, entry.getKey(), entry.getValue(), matchers, starters.get(entry.getKey()));
+                        if (isVisited(child, matchers)) {
+                            child.node = org.node.child(entry.getKey());
+                            offer(queue, child, matchers, matches);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int id = 0; id < n; id++) {
+            int i = partial.get(id);
+            results.set(i, paths[i].complete(source, matches.get(id)));
+        }
+    }
+
+    // ids of the parent and ids of the paths starting with the key are both sorted, so they are merged;
+    // a primitive which is not a match has nothing left to visit, no path or queue entry is built for it;
+    private static boolean isVisited(Visit visit, PathMatcher[] matchers) {
+        if (isContainer(visit)) {
+            return true;
+        }
+        for (int i = 0; i < visit.ids.length; i++) {
+            if (matchers[visit.ids[i]].isMatch(visit.states[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isContainer(Visit visit) {
+        return visit.jsonElement.isJsonObject() || visit.jsonElement.isJsonArray();
+    }
+
+    private static void offer(Queue<Visit> queue, Visit visit, PathMatcher[] matchers, List<List<JsonElementWithPath>> matches) {
+        if (isContainer(visit)) {
+            queue.offer(visit);
+        }
+        addMatches(visit, matchers, matches);
+    }
+
+    private static Visit onKey(Visit parent, String key, JsonElement value, PathMatcher[] matchers, int[] starters) {
+        int[] ids = new int[parent.ids.length + starters.length];
+        int[][] states = new int[ids.length][];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < parent.ids.length || j < starters.length) {
+            int id;
+            int[] org;
+            if (j == starters.length || (i < parent.ids.length && parent.ids[i] <= starters[j])) {
+                id = parent.ids[i];
+                org = parent.states[i];
+                if (j < starters.length && starters[j] == id) {
+                    j++;
+                }
+                i++;
+            } else {
+                id = starters[j++];
+                org = PathMatcher.NO_STATES;
+            }
+
+            int[] next = matchers[id].onKey(org, key);
+            if (next.length > 0) {
+                ids[size] = id;
+                states[size++] = next;
+            }
+        }
+
+        return new Visit(value, trim(ids, size), (size == states.length) ? states : Arrays.copyOf(states, size));
+    }
+
+    // per partial path of the parent, the indexes selected by its ranges, see PathMatcher.getIndexes();
+    private static BitSet[][] getIndexes(Visit parent, int length, PathMatcher[] matchers) {
+        BitSet[][] indexes = new BitSet[parent.ids.length][];
+        for (int i = 0; i < parent.ids.length; i++) {
+            indexes[i] = matchers[parent.ids[i]].getIndexes(parent.states[i], length);
+        }
+        return indexes;
+    }
+
+    private static Visit onIndex(Visit parent, int index, JsonArray ja, BitSet[][] indexes, PathMatcher[] matchers) throws Exception {
+        JsonElement value = ja.get(index);
+        if (parent.ids.length == 0) {
+            return new Visit(value, NO_IDS, NO_STATES);
+        }
+
+        int[] ids = new int[parent.ids.length];
+        int[][] states = new int[ids.length][];
+        int size = 0;
+        for (int i = 0; i < parent.ids.length; i++) {
+            int[] next = matchers[parent.ids[i]].onIndex(parent.states[i], indexes[i], index, ja.size(), value, GsonNodeModel.INSTANCE, null);
+            if (next.length > 0) {
+                ids[size] = parent.ids[i];
+                states[size++] = next;
+            }
+        }
+
+        return new Visit(value, trim(ids, size), (size == states.length) ? states : Arrays.copyOf(states, size));
+    }
+
+    // the paths matching the same node share its PathNode;
+    private static void addMatches(Visit visit, PathMatcher[] matchers, List<List<JsonElementWithPath>> matches) {
+        for (int i = 0; i < visit.ids.length; i++) {
+            int id = visit.ids[i];
+            if (matchers[id].isMatch(visit.states[i])) {
+                matches.get(id).add(new JsonElementWithPath(visit.jsonElement, visit.node));
+            }
+        }
+    }
+
+    private static int[] trim(int[] ids, int size) {
+        if (size == 0) {
+            return NO_IDS;
+        }
+        return (size == ids.length) ? ids : Arrays.copyOf(ids, size);
+    }
+
+    // ids of the partial paths by their first key, ignoreCase paths are kept in a case-insensitive map;
+    private static final class Starters {
+        private final Map<String, int[]> exact = new HashMap<>();
+        private final Map<String, int[]> ignoreCase = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        void add(PathMatcher matcher, int id) {
+            String key = matcher.getFirstKey();
+            if (key == null) {
+                return;
+            }
+
+            Map<String, int[]> map = matcher.isIgnoreCase() ? ignoreCase : exact;
+            int[] ids = map.get(key);
+            if (ids == null) {
+                map.put(key, new int[]{id});
+            } else {
+                ids = Arrays.copyOf(ids, ids.length + 1);
+                ids[ids.length - 1] = id;
+                map.put(key, ids);
+            }
+        }
+
+        int[] get(String key) {
+            int[] a = exact.isEmpty() ? null : exact.get(key);
+            int[] b = ignoreCase.isEmpty() ? null : ignoreCase.get(key);
+            if (a == null) {
+                return (b == null) ? NO_IDS : b;
+            } else if (b == null) {
+                return a;
+            }
+
+            int[] ids = new int[a.length + b.length];
+            System.arraycopy(a, 0, ids, 0, a.length);
+            System.arraycopy(b, 0, ids, a.length, b.length);
+            Arrays.sort(ids);
+            return ids;
+        }
+    }
+
+    // a node waiting in the queue, ids[i] is a partial path and states[i] are its states at this node;
+    private static final class Visit {
+        private final JsonElement jsonElement;
+        // set once the node is queued or matched;
+        private PathNode node;
+        private final int[] ids;
+        private final int[][] states;
+
+        Visit(JsonElement jsonElement, int[] ids, int[][] states) {
+            this.jsonElement = jsonElement;
+            this.ids = ids;
+            this.states = states;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The same paths evaluated against many documents, concurrently.
+ * <p>
+ * The paths are compiled once. Every document is parsed and evaluated by one task of the caller's Executor,
+ * all its paths in one traversal, see {@link CompiledJsonPath#evaluate(JsonObject, List)}. At most maxInFlight
+ * documents are submitted and not yet returned at any time, a source is only pulled from the iterator when a
+ * result has been taken, so a slow consumer slows down the reading instead of filling the memory.
+ * <pre>
+ * BulkQuery query = BulkQuery.compile(paths, true, ignoredPaths);
+ * Iterator&lt;BulkQuery.Result&gt; results = query.evaluate(responses.iterator(), executor, 64);
+ * while (results.hasNext()) {
+ *     BulkQuery.Result result = results.next();
+ *     ...
+ * }
+ * </pre>
+ * A document which cannot be parsed or evaluated gives a Result holding its error, the other documents are not affected.
+ */
+public final class BulkQuery {
+    private final List<CompiledJsonPath> compiled;
+
+    private BulkQuery(List<CompiledJsonPath> compiled) {
+        this.compiled = compiled;
+    }
+
+    /**
+     * @param paths        standard json paths;
+     * @param ignoreCase   if true, it will ignore the case of paths; if false, it will strictly match paths;
+     * @param ignoredPaths JsonPaths to be removed from the result of every path, could be null;
+     */
+    public static BulkQuery compile(List<String> paths, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (paths == null || paths.isEmpty()) {
+            throw new IllegalArgumentException("JsonPaths should not be empty.");
+        }
+
+        return new BulkQuery(JsonPath.compileAll(paths, ignoreCase, ignoredPaths));
+    }
+
+    /**
+     * @param sources     String, Reader or JsonObject documents, a Reader is read to the end but not closed;
+     * @param executor    runs one task per document
+     * @param maxInFlight the maximum number of documents submitted and not yet returned by the iterator
+     * @return the results in the order the documents complete, see {@link Result#getIndex()};
+     * the sources are pulled by hasNext() and next(), from the thread iterating
+     */
+    public Iterator<Result> evaluate(Iterator<?> sources, Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight should be positive : " + maxInFlight);
+        }
+
+        return new Results(sources, executor, maxInFlight);
+    }
+
+    /**
+     * Evaluates the paths against one document in the calling thread.
+     *
+     * @return the result of each path, in the order of the paths
+     */
+    public Map<String, List<JsonElementWithPath>> evaluate(Object source) throws Exception {
+        JsonObject jo;
+        if (source instanceof JsonObject) {
+            jo = (JsonObject) source;
+        } else if (source instanceof String) {
+            jo = new JsonParser().parse((String) source).getAsJsonObject();
+        } else if (source instanceof Reader) {
+            jo = new JsonParser().parse((Reader) source).getAsJsonObject();
+        } else {
+            throw new IllegalArgumentException("Source should be a String, a Reader or a JsonObject : "
+                    + ((source == null) ? null : source.getClass().getName()));
+        }
+
+        return JsonPath.toMap(compiled, CompiledJsonPath.evaluate(jo, compiled));
+    }
+
+    /**
+     * The result of one document, either the result of each path or the error which stopped the document.
+     */
+    public static final class Result {
+        private final long index;
+        private final Object source;
+        private final Map<String, List<JsonElementWithPath>> results;
+        private final Exception error;
+
+        Result(long index, Object source, Map<String, List<JsonElementWithPath>> results, Exception error) {
+            this.index = index;
+            this.source = source;
+            this.results = results;
+            this.error = error;
+        }
+
+        /**
+         * @return the position of the document in the sources, from 0
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        public Object getSource() {
+            return source;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return the result of each path, in the order of the paths, null if the document failed
+         */
+        public Map<String, List<JsonElementWithPath>> getResults() {
+            return results;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+    }
+
+    private final class Results implements Iterator<Result> {
+        private final Iterator<?> sources;
+        private final Executor executor;
+        private final int maxInFlight;
+        private final BlockingQueue<Result> done = new LinkedBlockingQueue<>();
+        private long submitted;
+        private int inFlight;
+
+        Results(Iterator<?> sources, Executor executor, int maxInFlight) {
+            this.sources = sources;
+            this.executor = executor;
+            this.maxInFlight = maxInFlight;
+        }
+
+        // submits documents until maxInFlight of them are on the way;
+        private void fill() {
+            while (inFlight < maxInFlight && sources.hasNext()) {
+                final long index = submitted++;
+                final Object source = sources.next();
+                inFlight++;
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            done.add(evaluate(index, source));
+                        }
+                    });
+                } catch (RuntimeException e) { // e.g. RejectedExecutionException, only this document fails
+                    done.add(new Result(index, source, null, e));
+                }
+            }
+        }
+
+        private Result evaluate(long index, Object source) {
+            try {
+                return new Result(index, source, BulkQuery.this.evaluate(source), null);
+            } catch (Exception e) {
+                return new Result(index, source, null, e);
+            } catch (Throwable t) {
+                return new Result(index, source, null, new ExecutionException(t));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return inFlight > 0;
+        }
+
+        @Override
+        public Result next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            try {
+                Result result = done.take();
+                inFlight--;
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a document.", e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.jz.jsonpath;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A JsonPath which is parsed once and can be evaluated against any number of documents.
+ * <p>
+ * Instances are immutable and thread-safe, compile the paths you run repeatedly and share them:
+ * <pre>
+ * CompiledJsonPath compiled = CompiledJsonPath.compile("URL", true, ignoredPaths);
+ * List&lt;JsonElementWithPath&gt; res = compiled.evaluate(source);
+ * </pre>
+ * Whether a path like "modules.BINSUMMARY" is absolute depends on the top-level keys of the document,
+ * so it is decided per document: absolute paths are walked token by token, partial paths are matched by a BFS.
+ */
+public final class CompiledJsonPath {
+    private static final String LENGTH_FUNCTION = "(.*)(\\.length\\(\\)$)";
+
+    private final String path;
+    private final boolean ignoreCase;
+    private final String[] ignoredPaths;
+
+    // path without ".length()" when the length() function is used, otherwise null;
+    private final CompiledJsonPath lengthOf;
+
+    private final String firstKey;
+    private final List<PathToken> tokens;
+    private final PathMatcher relativeMatcher;
+    private final PathMatcher absoluteMatcher;
+
+    private final IgnoredPathIndex ignored;
+
+    private CompiledJsonPath(String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        this.path = path;
+        this.ignoreCase = ignoreCase;
+        this.ignoredPaths = (ignoredPaths == null) ? new String[]{} : ignoredPaths.clone();
+
+        if (path.matches(LENGTH_FUNCTION)) { // case: [path == $.listing.termsAndPolicies.length()]
+            this.lengthOf = new CompiledJsonPath(path.replaceAll(LENGTH_FUNCTION, "$1"), ignoreCase, new String[]{});
+            this.firstKey = null;
+            this.tokens = Collections.emptyList();
+            this.relativeMatcher = null;
+            this.absoluteMatcher = null;
+            this.ignored = new IgnoredPathIndex(new String[]{}, ignoreCase);
+            return;
+        }
+
+        this.lengthOf = null;
+        this.firstKey = path.startsWith("$") ? null : firstKey(path);
+        this.tokens = Collections.unmodifiableList(PathToken.tokenize(path));
+        this.relativeMatcher = (firstKey == null) ? null : new PathMatcher(tokens, false, ignoreCase);
+        this.absoluteMatcher = new PathMatcher(tokens, true, ignoreCase);
+
+        this.ignored = new IgnoredPathIndex(this.ignoredPaths, ignoreCase);
+    }
+
+    /**
+     * @param path         standard json path;
+     * @param ignoreCase   if true, it will ignore the case of path; if false, it will strictly match path;
+     * @param ignoredPaths JsonPaths to be removed from the result, could be null;
+     * @return a reusable {@link CompiledJsonPath}
+     * @throws Exception if the path or one of the ignored paths is invalid;
+     */
+    public static CompiledJsonPath compile(String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (path == null || path.length() == 0) {
+            throw new IllegalArgumentException("JsonPath should not be empty.");
+        }
+
+        return new CompiledJsonPath(path, ignoreCase, ignoredPaths);
+    }
+
+    public static CompiledJsonPath compile(String path) throws Exception {
+        return compile(path, false, new String[]{});
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    public String[] getIgnoredPaths() {
+        return ignoredPaths.clone();
+    }
+
+    /**
+     * @param source the source of JsonObject
+     * @return returns a a list of {@link JsonElementWithPath}
+     */
+    public List<JsonElementWithPath> evaluate(JsonObject source) throws Exception {
+        return limit(source, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #evaluate(JsonObject)}, the nodes visited, filters evaluated, ignored path checks and the time of
+     * each phase are added to stats.
+     *
+     * @param stats see {@link QueryStats}
+     */
+    public List<JsonElementWithPath> evaluate(JsonObject source, QueryStats stats) throws Exception {
+        return limit(source, Integer.MAX_VALUE, stats);
+    }
+
+    /**
+     * Same as {@link #evaluate(JsonObject)}, but the traversal stops as soon as n results are found,
+     * the ignored paths are tested on each match instead of on the whole result.
+     *
+     * @param n the maximum number of results
+     * @return the first n results of {@link #evaluate(JsonObject)}
+     */
+    public List<JsonElementWithPath> limit(JsonObject source, int n) throws Exception {
+        return limit(source, n, null);
+    }
+
+    private List<JsonElementWithPath> limit(JsonObject source, int n, QueryStats stats) throws Exception {
+        if (n < 0) {
+            throw new IllegalArgumentException("limit should not be negative : " + n);
+        }
+
+        List<JsonElementWithPath> result = new ArrayList<>();
+        if (source == null || source.isJsonNull() || n == 0) {
+            return result;
+        }
+
+        if (lengthOf != null) {
+            result.add(new JsonElementWithPath(new JsonPrimitive(length(lengthOf.limit(source, Integer.MAX_VALUE, stats))), lengthOf.path));
+            return result;
+        }
+
+        long start = System.nanoTime();
+        // time spent in the INDEX and IGNORE phases, which is not part of the traversal;
+        long excluded = (stats == null) ? 0 : excludedNanos(stats);
+
+        // as before, absolute paths return their candidates without applying ignored paths;
+        if (isAbsolute(source)) {
+            result = walk(source, n, stats);
+        } else {
+            // array steps are filtered when the BFS reaches the array, with its length and elements at hand;
+            MatchIterator<JsonElement, JsonElementWithPath> matches = MatchIterator.of(source, relativeMatcher, ignored, stats);
+            for (JsonElementWithPath je = matches.poll(); je != null; je = matches.poll()) {
+                result.add(je);
+                if (result.size() == n) {
+                    break;
+                }
+            }
+        }
+
+        if (stats != null) {
+            stats.addTime(QueryStats.Phase.TRAVERSAL, System.nanoTime() - start - (excludedNanos(stats) - excluded));
+        }
+        return result;
+    }
+
+    private static long excludedNanos(QueryStats stats) {
+        return stats.getTime(QueryStats.Phase.INDEX, TimeUnit.NANOSECONDS) + stats.getTime(QueryStats.Phase.IGNORE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Same as {@link #evaluate(JsonObject)}, against the tree of any parser, e.g.
+     * <pre>
+     * compiled.evaluate(FastjsonNodeModel.parse(json), FastjsonNodeModel.INSTANCE);
+     * </pre>
+     *
+     * @param source the root object of the tree
+     * @param model  how to read the tree, see {@link JsonNodeModel}
+     * @return the nodes found, with their paths, in the same order as {@link #evaluate(JsonObject)}
+     */
+    public <N> List<NodeWithPath<N>> evaluate(N source, JsonNodeModel<N> model) throws Exception {
+        List<NodeWithPath<N>> result = new ArrayList<>();
+        if (source == null || !model.isObject(source)) {
+            return result;
+        }
+
+        if (lengthOf != null) {
+            result.add(new NodeWithPath<>(model.number(length(lengthOf.evaluate(source, model), model)), lengthOf.path));
+            return result;
+        }
+
+        if (firstKey == null || model.get(source, firstKey) != null) {
+            for (Visit<N> visit : walk(source, model, Integer.MAX_VALUE, null)) {
+                result.add(new NodeWithPath<>(visit.value, visit.node));
+            }
+            return result;
+        }
+
+        MatchIterator<N, NodeWithPath<N>> matches = MatchIterator.of(source, model, relativeMatcher, ignored);
+        for (NodeWithPath<N> match = matches.poll(); match != null; match = matches.poll()) {
+            result.add(match);
+        }
+        return result;
+    }
+
+    /**
+     * Lazy version of {@link #evaluate(JsonObject)}: the BFS advances only when the next result is requested,
+     * so a caller who stops iterating early also stops the traversal.
+     * Absolute paths only walk their own steps, their results are computed at once.
+     *
+     * @return the results of {@link #evaluate(JsonObject)}, in the same order; an Exception thrown by a filter
+     * is rethrown as an IllegalStateException
+     */
+    public Iterator<JsonElementWithPath> iterator(JsonObject source) throws Exception {
+        if (source == null || source.isJsonNull()) {
+            return Collections.<JsonElementWithPath>emptyList().iterator();
+        }
+        if (lengthOf != null || isAbsolute(source)) {
+            return evaluate(source).iterator();
+        }
+
+        return MatchIterator.of(source, relativeMatcher, ignored);
+    }
+
+    /**
+     * @see #iterator(JsonObject)
+     */
+    public Stream<JsonElementWithPath> stream(JsonObject source) throws Exception {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(source),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return the first result of {@link #evaluate(JsonObject)}, or null if there is none
+     */
+    public JsonElementWithPath first(JsonObject source) throws Exception {
+        List<JsonElementWithPath> result = limit(source, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * @return true if {@link #evaluate(JsonObject)} would not be empty, the traversal stops at the first result
+     */
+    public boolean exists(JsonObject source) throws Exception {
+        return first(source) != null;
+    }
+
+    /**
+     * Same as {@link #evaluate(JsonObject)}, a partial path is matched against the nodes of the index
+     * instead of traversing the document again, or looked up by its keys if the index has them.
+     *
+     * @param index the index of the source, see {@link JsonDocumentIndex}
+     * @return returns a a list of {@link JsonElementWithPath}
+     */
+    public List<JsonElementWithPath> evaluate(JsonDocumentIndex index) throws Exception {
+        if (index == null) {
+            return new ArrayList<>();
+        }
+
+        JsonObject source = index.getSource();
+        if (lengthOf != null) {
+            List<JsonElementWithPath> result = new ArrayList<>();
+            result.add(new JsonElementWithPath(new JsonPrimitive(length(lengthOf.evaluate(index))), lengthOf.path));
+            return result;
+        }
+
+        if (isAbsolute(index)) {
+            return walk(source);
+        }
+
+        List<JsonElementWithPath> matches = index.hasKeys() ? index.lookup(tokens, ignoreCase) : index.match(relativeMatcher);
+        return ignored.apply(source, matches);
+    }
+
+    /**
+     * Same as {@link #evaluate(JsonObject)}, a partial path is matched by tasks of the pool, see {@link ParallelEvaluator}.
+     * Absolute paths only walk their own steps and stay in the calling thread.
+     *
+     * @param source    the source of JsonObject
+     * @param pool      the pool running the tasks, e.g. ForkJoinPool.commonPool()
+     * @param threshold containers with more members or elements than the threshold are split into tasks,
+     *                  a document without such a container is matched by a single task;
+     * @return returns a a list of {@link JsonElementWithPath}, in the same order as {@link #evaluate(JsonObject)}
+     */
+    public List<JsonElementWithPath> evaluate(JsonObject source, ForkJoinPool pool, int threshold) throws Exception {
+        if (source == null || source.isJsonNull()) {
+            return new ArrayList<>();
+        }
+
+        if (lengthOf != null) {
+            List<JsonElementWithPath> result = new ArrayList<>();
+            result.add(new JsonElementWithPath(new JsonPrimitive(length(lengthOf.evaluate(source, pool, threshold))), lengthOf.path));
+            return result;
+        }
+
+        if (isAbsolute(source)) {
+            return walk(source);
+        }
+
+        return ignored.apply(source, new ParallelEvaluator(relativeMatcher, threshold).evaluate(source, pool));
+    }
+
+    /**
+     * Evaluates several paths against the same document, see {@link BatchEvaluator}.
+     * Partial paths share a single traversal, absolute paths are walked one by one.
+     *
+     * @param source the source of JsonObject
+     * @param paths  compiled paths, possibly with different ignoreCase and ignored paths;
+     * @return the results in the order of the paths, each the same as {@link #evaluate(JsonObject)}
+     */
+    public static List<List<JsonElementWithPath>> evaluate(JsonObject source, List<CompiledJsonPath> paths) throws Exception {
+        return new BatchEvaluator(paths).evaluate(source);
+    }
+
+    /**
+     * @see #evaluate(JsonObject, List)
+     */
+    public static List<List<JsonElementWithPath>> evaluate(JsonDocumentIndex index, List<CompiledJsonPath> paths) throws Exception {
+        return new BatchEvaluator(paths).evaluate(index);
+    }
+
+    // the path actually traversed, i.e. the path without ".length()";
+    CompiledJsonPath target() {
+        return (lengthOf != null) ? lengthOf : this;
+    }
+
+    boolean isAbsolute(JsonObject source) {
+        return firstKey == null || source.has(firstKey);
+    }
+
+    boolean isAbsolute(JsonDocumentIndex index) {
+        return firstKey == null || index.isRootKey(firstKey);
+    }
+
+    PathMatcher getRelativeMatcher() {
+        return relativeMatcher;
+    }
+
+    /**
+     * Turns the matches of the partial {@link #target()} into the result of this path,
+     * i.e. computes the length() or applies the ignored paths.
+     */
+    List<JsonElementWithPath> complete(JsonObject source, List<JsonElementWithPath> matches) throws Exception {
+        if (lengthOf != null) {
+            List<JsonElementWithPath> result = new ArrayList<>();
+            result.add(new JsonElementWithPath(new JsonPrimitive(length(matches)), lengthOf.path));
+            return result;
+        }
+
+        return ignored.apply(source, matches);
+    }
+
+    /**
+     * Evaluates the path while reading the document, see {@link JsonStreamEvaluator}.
+     * Only the matched elements are materialized, use it for documents too large to hold as a JsonObject.
+     *
+     * @param source the source of Json, it is read to the end of the root JsonObject but not closed;
+     * @return returns a a list of {@link JsonElementWithPath}, same as {@link #evaluate(JsonObject)}
+     */
+    public List<JsonElementWithPath> evaluate(Reader source) throws Exception {
+        JsonReader reader = new JsonReader(source);
+        reader.setLenient(true);
+        if (lengthOf != null) {
+            List<JsonElementWithPath> result = new ArrayList<>();
+            result.add(new JsonElementWithPath(new JsonPrimitive(length(lengthOf.evaluate(reader))), lengthOf.path));
+            return result;
+        }
+
+        return evaluate(reader);
+    }
+
+    private List<JsonElementWithPath> evaluate(JsonReader reader) throws Exception {
+        return new JsonStreamEvaluator(firstKey, absoluteMatcher, relativeMatcher, ignored).evaluate(reader);
+    }
+
+    /**
+     * Evaluates an absolute path by walking its tokens, a key is looked up in the JsonObject and an array step
+     * only visits the selected indexes, so the cost depends on the path and the matches instead of the document.
+     * Candidates are produced level by level, in the same order as the BFS.
+     */
+    private List<JsonElementWithPath> walk(JsonObject source) throws Exception {
+        return walk(source, Integer.MAX_VALUE, null);
+    }
+
+    private List<JsonElementWithPath> walk(JsonObject source, int n, QueryStats stats) throws Exception {
+        List<JsonElementWithPath> result = new ArrayList<>();
+        for (Visit<JsonElement> visit : walk((JsonElement) source, GsonNodeModel.INSTANCE, n, stats)) {
+            result.add(new JsonElementWithPath(visit.value, visit.node));
+        }
+        return result;
+    }
+
+    // the last step stops once n candidates are selected;
+    private <N> List<Visit<N>> walk(N source, JsonNodeModel<N> model, int n, QueryStats stats) throws Exception {
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Visit<N>> current = new ArrayList<>();
+        current.add(new Visit<>(source, PathNode.ROOT));
+        for (int t = 0; t < tokens.size(); t++) {
+            PathToken token = tokens.get(t);
+            boolean last = (t == tokens.size() - 1);
+            List<Visit<N>> next = new ArrayList<>();
+            for (Visit<N> org : current) {
+                if (last && next.size() >= n) {
+                    break;
+                }
+                if (token.isIndex()) {
+                    if (model.isArray(org.value)) {
+                        selectElements(org.value, model, org.node, token, next, stats);
+                    }
+                } else if (model.isObject(org.value)) {
+                    selectMembers(org.value, model, org.node, token.getKey(), next, stats);
+                }
+            }
+
+            if (next.isEmpty()) {
+                return next;
+            }
+            current = next;
+        }
+
+        return (current.size() > n) ? current.subList(0, n) : current;
+    }
+
+    private <N> void selectMembers(N object, JsonNodeModel<N> model, PathNode node, String key, List<Visit<N>> next, QueryStats stats) {
+        if (!ignoreCase) {
+            N value = model.get(object, key);
+            if (stats != null) {
+                stats.onNode(node.getDepth() + 1);
+            }
+            if (value != null) {
+                next.add(new Visit<>(value, node.child(key)));
+                if (stats != null) {
+                    stats.onPathBuilt();
+                }
+            }
+            return;
+        }
+
+        for (Map.Entry<String, N> entry : model.members(object)) {
+            if (stats != null) {
+                stats.onNode(node.getDepth() + 1);
+            }
+            if (entry.getKey().equalsIgnoreCase(key)) {
+                next.add(new Visit<>(entry.getValue(), node.child(entry.getKey())));
+                if (stats != null) {
+                    stats.onPathBuilt();
+                }
+            }
+        }
+    }
+
+    private static <N> void selectElements(N array, JsonNodeModel<N> model, PathNode node, PathToken token, List<Visit<N>> next, QueryStats stats) throws Exception {
+        int length = model.size(array);
+        if (token.hasConditions()) {
+            for (int j = 0; j < length; j++) {
+                N element = model.get(array, j);
+                if (stats != null) {
+                    stats.onNode(node.getDepth() + 1);
+                }
+                if (model.isObject(element) && token.getFilter().isMatching(element, model, stats)) {
+                    next.add(new Visit<>(element, node.child(j)));
+                    if (stats != null) {
+                        stats.onPathBuilt();
+                    }
+                }
+            }
+            return;
+        }
+
+        BitSet indexes = Range.getIndexes(token.getRanges(), length);
+        for (int j = indexes.nextSetBit(0); j >= 0; j = indexes.nextSetBit(j + 1)) {
+            if (stats != null) {
+                stats.onNode(node.getDepth() + 1);
+            }
+            next.add(new Visit<>(model.get(array, j), node.child(j)));
+            if (stats != null) {
+                stats.onPathBuilt();
+            }
+        }
+    }
+
+    private static <N> int length(List<NodeWithPath<N>> result, JsonNodeModel<N> model) throws Exception {
+        if (result.size() > 1) {
+            throw new Exception("Please correct your json path to match a single JsonElement.");
+        } else if (result.isEmpty()) {
+            return 0;
+        }
+
+        N node = result.get(0).getNode();
+        if (model.isObject(node) || model.isArray(node)) {
+            return model.size(node);
+        }
+        return model.isPrimitive(node) ? model.asString(node).length() : 0;
+    }
+
+    private static int length(List<JsonElementWithPath> result) throws Exception {
+        int length = 0;
+        if (result == null || result.size() == 0) {
+            length = 0;
+        } else if (result.size() > 1) {
+            throw new Exception("Please correct your json path to match a single JsonElement.");
+        } else {
+            JsonElement jsonElement = result.get(0).getJsonElement();
+            if (jsonElement.isJsonObject()) {
+                length = jsonElement.getAsJsonObject().entrySet().size();
+            } else if (jsonElement.isJsonArray()) {
+                length = jsonElement.getAsJsonArray().size();
+            } else if (jsonElement.isJsonPrimitive()) {
+                length = jsonElement.getAsJsonPrimitive().getAsString().length();
+            }
+        }
+
+        return length;
+    }
+
+    // "modules.BINSUMMARY.minView" -> "modules", same as JsonPath.updatePaths2Full;
+    private static String firstKey(String path) {
+        int index = path.indexOf(".");
+        return (index == -1) ? path : path.substring(0, index);
+    }
+
+    // a node selected by the walk;
+    private static final class Visit<N> {
+        private final N value;
+        private final PathNode node;
+
+        Visit(N value, PathNode node) {
+            this.value = value;
+            this.node = node;
+        }
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.jz.jsonpath;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.google.gson.JsonObject;
 
 import java.util.*;
 import java.util.regex.Matcher;
@@ -17,6 +20,21 @@ public class Condition implements IFilter {
     private String logical_operator;
     public static final Set<String> OPERATORS = Sets.newHashSet("<", ">", "<=", ">=", "==", "!=", "=~", "in", "nin", "subsetof", "size", "empty", "notempty");
     public static final Set<String> LOGICAL_OPERATORS = Sets.newHashSet("&&", "||");
+    private static final Map<String, Operators> OPERATOR_TYPES = ImmutableMap.<String, Operators>builder()
+            .put("==", Operators.EQUAL_TO).put("!=", Operators.NOT_EQUAL_TO)
+            .put(">", Operators.GREATER_THAN).put("<", Operators.LESS_THAN)
+            .put(">=", Operators.GREATER_THAN_OR_EQUAL_TO).put("<=", Operators.LESS_THAN_OR_EQUAL_TO)
+            .put("=~", Operators.MATCHING_REGEX).put("in", Operators.IN).put("nin", Operators.NIN)
+            .put("subsetof", Operators.SUBSET_OF).put("size", Operators.SIZE)
+            .put("empty", Operators.EMPTY).put("notempty", Operators.NOT_EMPTY)
+            .build();
+
+    // compiled once from operator and right by the constructor, see isMatching(JsonObject);
+    private final Operators type;
+    private final Pattern regex;
+    private final Set<String> values;
+    private final Integer rightAsInt;
+    private final Operand operand;
 
     public boolean isValid() {
         if (left == null || left.length() == 0) {
@@ -38,25 +56,170 @@ public class Condition implements IFilter {
 
     //Unary operator
     Condition(String left, String operator) {
-        this.left = left.trim();
-        this.operator = operator.trim();
-        this.logical_operator = "";
+        this(left, operator, null, "");
     }
 
     //    Binary operator
     Condition(String left, String operator, String right) {
-        this.left = left.trim();
-        this.operator = operator.trim();
-        this.right = right;
-        this.logical_operator = "";
+        this(left, operator, right, "");
     }
 
 
+    // pre-parses the right operand for the operator: number, regex, size or the set of "in"/"nin";
     Condition(String left, String operator, String right, String logical_operator) {
         this.left = left.trim();
         this.operator = operator.trim();
         this.right = right;
         this.logical_operator = logical_operator;
+
+        type = (this.left.length() == 0) ? null : OPERATOR_TYPES.get(this.operator);
+        boolean hasRight = type != null && right != null;
+        regex = (hasRight && type == Operators.MATCHING_REGEX) ? Pattern.compile(right) : null;
+        values = (hasRight && (type == Operators.IN || type == Operators.NIN)) ? getValues(right) : null;
+        rightAsInt = (type == Operators.SIZE) ? getSize(right) : null;
+        operand = (hasRight && regex == null && values == null && type != Operators.SIZE) ? Operand.parse(right) : null;
+    }
+
+    // the set of "in"/"nin", e.g. ['S', 'M'];
+    private static Set<String> getValues(String right) {
+        Set<String> values = new HashSet<>();
+        if (right.trim().length() < 2) {
+            return values;
+        }
+        for (String str : right.trim().substring(1, right.length() - 1).split("\\s{0,},\\s{0,}")) {
+            values.add(str.trim());
+        }
+        return values;
+    }
+
+    private static Integer getSize(String right) {
+        Integer size = (right == null) ? null : Ints.tryParse(right);
+        if (size == null) {
+            throw new IllegalArgumentException("The operand of size should be an integer : " + right);
+        }
+        return size;
+    }
+
+    /**
+     * Evaluates the condition against one element of a JsonArray, the member is read by a direct
+     * {@link JsonObject#get(String)} and the right operand was parsed when the condition was created.
+     *
+     * @param jo sample : {"text":"Refund","accessibilityText":"Refund"}
+     * @return false if jo does not have the member, or the condition is not valid;
+     */
+    boolean isMatching(JsonObject jo) {
+        return isMatching(jo, GsonNodeModel.INSTANCE);
+    }
+
+    /**
+     * Same as {@link #isMatching(JsonObject)}, against an object of any {@link JsonNodeModel}.
+     */
+    <N> boolean isMatching(N object, JsonNodeModel<N> model) {
+        return isMatching(object, model, null);
+    }
+
+    <N> boolean isMatching(N object, JsonNodeModel<N> model, QueryStats stats) {
+        if (type == null) {
+            return false;
+        }
+        N value = model.get(object, left);
+        if (value == null) {
+            return false;
+        }
+
+        switch (type) {
+            case LESS_THAN:
+            case GREATER_THAN:
+            case LESS_THAN_OR_EQUAL_TO:
+            case GREATER_THAN_OR_EQUAL_TO:
+                Integer sign = (operand != null) ? operand.compareTo(value, model) : null;
+                return sign != null && isOrdered(sign);
+            case EQUAL_TO:
+                return isEqual(value, model);
+            case NOT_EQUAL_TO:
+                return !isEqual(value, model);
+            case MATCHING_REGEX:
+                if (stats != null) {
+                    stats.onRegexMatch();
+                }
+                return regex.matcher(model.toJson(value)).matches();
+            case IN:
+                return values != null && values.contains(model.toJson(value));
+            case NIN:
+                return values == null || !values.contains(model.toJson(value));
+            case SIZE:
+                return size(value, model) == rightAsInt;
+            case EMPTY:
+                return size(value, model) == 0;
+            case NOT_EMPTY:
+                return size(value, model) > 0;
+            default: // subsetof, to-do
+                return false;
+        }
+    }
+
+    /**
+     * Evaluates conditions joined by their logical operators, && before ||, see {@link FilterExpression}.
+     */
+    static <N> boolean isMatching(List<Condition> conditions, N object, JsonNodeModel<N> model) {
+        return FilterExpression.of(conditions).isMatching(object, model, null);
+    }
+
+    // relative cost of isMatching(), for the order of evaluation in FilterExpression;
+    int getCost() {
+        if (type == null) {
+            return 0;
+        }
+        switch (type) {
+            case EQUAL_TO:
+            case NOT_EQUAL_TO:
+            case IN:
+            case NIN:
+                return 1;
+            case LESS_THAN:
+            case GREATER_THAN:
+            case LESS_THAN_OR_EQUAL_TO:
+            case GREATER_THAN_OR_EQUAL_TO:
+                return 2;
+            case SIZE:
+            case EMPTY:
+            case NOT_EMPTY:
+                return 3;
+            case MATCHING_REGEX:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    // sign is the sign of value - right;
+    private boolean isOrdered(int sign) {
+        switch (type) {
+            case LESS_THAN:
+                return sign < 0;
+            case GREATER_THAN:
+                return sign > 0;
+            case LESS_THAN_OR_EQUAL_TO:
+                return sign <= 0;
+            default:
+                return sign >= 0;
+        }
+    }
+
+    // numbers, strings and booleans are compared by value, anything else, e.g. null, as Json;
+    private <N> boolean isEqual(N value, JsonNodeModel<N> model) {
+        Boolean equal = (operand != null) ? operand.isEqual(value, model) : null;
+        return (equal != null) ? equal : model.toJson(value).equals(right);
+    }
+
+    // length of a primitive, size of an array or object, -1 for null;
+    private static <N> int size(N value, JsonNodeModel<N> model) {
+        if (model.isPrimitive(value)) {
+            return model.asString(value).length();
+        } else if (model.isArray(value) || model.isObject(value)) {
+            return model.size(value);
+        }
+        return -1;
     }
 
 
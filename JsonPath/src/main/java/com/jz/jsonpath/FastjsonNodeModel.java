@@ -0,0 +1,128 @@
+package com.jz.jsonpath;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link JsonNodeModel} of fastjson's tree: JSONObject, JSONArray, and String, Number, Boolean or null for the primitives.
+ * <p>
+ * fastjson keeps the members in a HashMap unless the document is parsed with {@link Feature#OrderedField},
+ * use {@link #parse(String)} to get the members, and so the results, in the order of the document.
+ */
+public final class FastjsonNodeModel implements JsonNodeModel<Object> {
+    public static final FastjsonNodeModel INSTANCE = new FastjsonNodeModel();
+
+    private FastjsonNodeModel() {
+    }
+
+    /**
+     * @return the root JSONObject, its members in the order of the document
+     */
+    public static JSONObject parse(String json) {
+        return JSON.parseObject(json, Feature.OrderedField);
+    }
+
+    @Override
+    public boolean isObject(Object node) {
+        return node instanceof Map;
+    }
+
+    @Override
+    public boolean isArray(Object node) {
+        return node instanceof List;
+    }
+
+    @Override
+    public boolean isPrimitive(Object node) {
+        return node != null && !(node instanceof Map) && !(node instanceof List);
+    }
+
+    @Override
+    public int size(Object node) {
+        return (node instanceof List) ? ((List<?>) node).size() : ((Map<?, ?>) node).size();
+    }
+
+    @Override
+    public Object get(Object object, String key) {
+        return ((Map<?, ?>) object).get(key);
+    }
+
+    @Override
+    public Object get(Object array, int index) {
+        return ((List<?>) array).get(index);
+    }
+
+    @Override
+    public Iterable<Map.Entry<String, Object>> members(final Object object) {
+        return new Iterable<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                final Iterator<? extends Map.Entry<?, ?>> itr = ((Map<?, ?>) object).entrySet().iterator();
+                return new Iterator<Map.Entry<String, Object>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return itr.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        Map.Entry<?, ?> entry = itr.next();
+                        return new AbstractMap.SimpleImmutableEntry<String, Object>(String.valueOf(entry.getKey()), entry.getValue());
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean isNumber(Object node) {
+        return node instanceof Number;
+    }
+
+    @Override
+    public boolean isString(Object node) {
+        return node instanceof String;
+    }
+
+    @Override
+    public boolean isBoolean(Object node) {
+        return node instanceof Boolean;
+    }
+
+    @Override
+    public Number asNumber(Object number) {
+        return (Number) number;
+    }
+
+    @Override
+    public boolean asBoolean(Object bool) {
+        return (Boolean) bool;
+    }
+
+    @Override
+    public String asString(Object primitive) {
+        return String.valueOf(primitive);
+    }
+
+    @Override
+    public String toJson(Object node) {
+        return JSON.toJSONString(node);
+    }
+
+    @Override
+    public Object number(int value) {
+        return value;
+    }
+}
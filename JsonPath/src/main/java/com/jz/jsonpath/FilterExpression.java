@@ -0,0 +1,98 @@
+package com.jz.jsonpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The conditions of a filter like [?(@.a == 1 && @.b =~ "x" || @.c in {"y", "z"})], grouped once by precedence:
+ * && binds tighter than ||, so the filter is an || of groups of && conditions, i.e. (@.a == 1 && @.b =~ "x") || @.c in {...}.
+ * <p>
+ * Evaluation stops at the first condition of a group which fails and at the first group which matches. Conditions
+ * have no side effects, so the cheap ones run first: equality and in/nin, then comparisons, then size, empty and
+ * notempty, regexes last; groups are ordered the same way by their total cost.
+ */
+final class FilterExpression {
+    private static final Comparator<Condition> BY_COST = new Comparator<Condition>() {
+        @Override
+        public int compare(Condition c1, Condition c2) {
+            return Integer.compare(c1.getCost(), c2.getCost());
+        }
+    };
+
+    private final Condition[][] groups;
+
+    private FilterExpression(Condition[][] groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * @param conditions conditions of a filter, each one joined to the next by its logical operator
+     */
+    static FilterExpression of(List<Condition> conditions) {
+        List<List<Condition>> groups = new ArrayList<>();
+        List<Condition> group = new ArrayList<>();
+        group.add(conditions.get(0));
+        for (int i = 1; i < conditions.size(); i++) {
+            String logicalOperator = conditions.get(i - 1).getLogicalOperator();
+            if (logicalOperator.equals("||")) {
+                groups.add(group);
+                group = new ArrayList<>();
+                group.add(conditions.get(i));
+            } else if (logicalOperator.equals("&&")) {
+                group.add(conditions.get(i));
+            } // as before, a condition without a logical operator before it is not evaluated;
+        }
+        groups.add(group);
+
+        for (List<Condition> g : groups) {
+            Collections.sort(g, BY_COST);
+        }
+        Collections.sort(groups, new Comparator<List<Condition>>() {
+            @Override
+            public int compare(List<Condition> g1, List<Condition> g2) {
+                return Integer.compare(getCost(g1), getCost(g2));
+            }
+        });
+
+        Condition[][] result = new Condition[groups.size()][];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = groups.get(i).toArray(new Condition[groups.get(i).size()]);
+        }
+        return new FilterExpression(result);
+    }
+
+    private static int getCost(List<Condition> group) {
+        int cost = 0;
+        for (Condition condition : group) {
+            cost += condition.getCost();
+        }
+        return cost;
+    }
+
+    /**
+     * @param stats counts the filter evaluations and the regex matches, could be null;
+     */
+    <N> boolean isMatching(N object, JsonNodeModel<N> model, QueryStats stats) {
+        if (stats != null) {
+            stats.onFilterEvaluation();
+        }
+
+        for (Condition[] group : groups) {
+            if (isMatching(group, object, model, stats)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <N> boolean isMatching(Condition[] group, N object, JsonNodeModel<N> model, QueryStats stats) {
+        for (Condition condition : group) {
+            if (!condition.isMatching(object, model, stats)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
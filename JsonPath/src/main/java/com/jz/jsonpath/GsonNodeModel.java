@@ -0,0 +1,91 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Map;
+
+/**
+ * {@link JsonNodeModel} of Gson's JsonElement, the tree of {@link JsonPath#get(com.google.gson.JsonObject, String, boolean, String[])}.
+ */
+public final class GsonNodeModel implements JsonNodeModel<JsonElement> {
+    public static final GsonNodeModel INSTANCE = new GsonNodeModel();
+
+    private GsonNodeModel() {
+    }
+
+    @Override
+    public boolean isObject(JsonElement node) {
+        return node != null && node.isJsonObject();
+    }
+
+    @Override
+    public boolean isArray(JsonElement node) {
+        return node != null && node.isJsonArray();
+    }
+
+    @Override
+    public boolean isPrimitive(JsonElement node) {
+        return node != null && node.isJsonPrimitive();
+    }
+
+    @Override
+    public int size(JsonElement node) {
+        return node.isJsonArray() ? node.getAsJsonArray().size() : node.getAsJsonObject().size();
+    }
+
+    @Override
+    public JsonElement get(JsonElement object, String key) {
+        return object.getAsJsonObject().get(key);
+    }
+
+    @Override
+    public JsonElement get(JsonElement array, int index) {
+        return array.getAsJsonArray().get(index);
+    }
+
+    @Override
+    public Iterable<Map.Entry<String, JsonElement>> members(JsonElement object) {
+        return object.getAsJsonObject().entrySet();
+    }
+
+    @Override
+    public boolean isNumber(JsonElement node) {
+        return node != null && node.isJsonPrimitive() && node.getAsJsonPrimitive().isNumber();
+    }
+
+    @Override
+    public boolean isString(JsonElement node) {
+        return node != null && node.isJsonPrimitive() && node.getAsJsonPrimitive().isString();
+    }
+
+    @Override
+    public boolean isBoolean(JsonElement node) {
+        return node != null && node.isJsonPrimitive() && node.getAsJsonPrimitive().isBoolean();
+    }
+
+    @Override
+    public Number asNumber(JsonElement number) {
+        return number.getAsNumber();
+    }
+
+    @Override
+    public boolean asBoolean(JsonElement bool) {
+        return bool.getAsBoolean();
+    }
+
+    @Override
+    public String asString(JsonElement primitive) {
+        return primitive.getAsString();
+    }
+
+    @Override
+    public String toJson(JsonElement node) {
+        return node.toString();
+    }
+
+    @Override
+    public JsonElement number(int value) {
+        return new JsonPrimitive(value);
+    }
+}
@@ -0,0 +1,352 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.*;
+
+/**
+ * All the ignored paths of a query compiled into one trie of path steps, which a result walks step by step instead
+ * of being compared with every ignored path. A partial ignored path may start at any step, so a result of depth d
+ * carries up to d states, i.e. O(d^2) steps in the worst case, and an array step also tests every index pattern of
+ * the node it reaches. A key step is a hash lookup, or a lookup in a case-insensitive TreeMap, O(log k) for k
+ * children, under ignoreCase.
+ * <p>
+ * An ignored path removes the elements it selects together with their subtree. For an ignored path having array
+ * steps, each array step removes the elements it selects and the array steps before it match any index,
+ * e.g. "value[3].value[0].URL" removes "value[3]" and "value[*].value[0]".
+ * <p>
+ * Keys are children in a map, array steps are edges holding their ranges or conditions. Paths starting with "$"
+ * hang from the root; paths like "PICTURE.mediaList[0]" are absolute if "PICTURE" is a top-level key of the
+ * document and partial otherwise, so they are added under the root and also under a second root which any key
+ * may start from. A node records which ignored paths end there, for either reading, and the document decides.
+ */
+final class IgnoredPathIndex {
+    static final Node[] NO_STATES = new Node[0];
+
+    private final boolean ignoreCase;
+    private final int size;
+    // first key of each ignored path not starting with "$", otherwise null;
+    private final String[] firstKeys;
+    private final Node root;
+    private final Node anywhere;
+
+    IgnoredPathIndex(String[] ignoredPaths, boolean ignoreCase) throws Exception {
+        this.ignoreCase = ignoreCase;
+        this.size = ignoredPaths.length;
+        this.firstKeys = new String[size];
+        this.root = new Node(ignoreCase);
+        this.anywhere = new Node(ignoreCase);
+
+        for (int i = 0; i < size; i++) {
+            String path = ignoredPaths[i].trim();
+            List<PathToken> tokens = PathToken.tokenize(path);
+            if (!path.startsWith("$") && !tokens.isEmpty()) {
+                firstKeys[i] = tokens.get(0).getKey();
+            }
+
+            for (List<PathToken> pattern : getElementPatterns(tokens)) {
+                root.add(pattern, 0).setAbsolute(i);
+                if (firstKeys[i] != null) {
+                    anywhere.add(pattern, 0).setRelative(i);
+                }
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the states of the root "$"
+     */
+    Node[] start() {
+        return isEmpty() ? NO_STATES : new Node[]{root};
+    }
+
+    Node[] onKey(Node[] states, String key) {
+        Node[] next = new Node[states.length + 1];
+        int size = 0;
+        for (Node state : states) {
+            Node child = state.keys.get(key);
+            if (child != null) {
+                next[size++] = child;
+            }
+        }
+        if (!anywhere.keys.isEmpty()) {
+            Node child = anywhere.keys.get(key);
+            if (child != null) {
+                next[size++] = child;
+            }
+        }
+
+        return trim(next, size);
+    }
+
+    /**
+     * @param length  length of the JsonArray, only read if {@link #needsLength(Node[])}
+     * @param element the element, only read if {@link #needsElement(Node[])}
+     */
+    Node[] onIndex(Node[] states, int index, int length, JsonElement element) throws Exception {
+        return onIndex(states, index, length, element, GsonNodeModel.INSTANCE);
+    }
+
+    <N> Node[] onIndex(Node[] states, int index, int length, N element, JsonNodeModel<N> model) throws Exception {
+        int count = 0;
+        for (Node state : states) {
+            count += state.edges.size();
+        }
+        if (count == 0) {
+            return NO_STATES;
+        }
+
+        Node[] next = new Node[count];
+        int size = 0;
+        for (Node state : states) {
+            for (Edge edge : state.edges) {
+                if (PathMatcher.isMatchingFilter(edge.token, index, length, element, model)) {
+                    next[size++] = edge.node;
+                }
+            }
+        }
+
+        return trim(next, size);
+    }
+
+    boolean needsLength(Node[] states) {
+        for (Node state : states) {
+            for (Edge edge : state.edges) {
+                for (Range range : edge.token.getRanges()) {
+                    if (range.getStart() < 0 && range.getEnd() < 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    boolean needsElement(Node[] states) {
+        for (Node state : states) {
+            for (Edge edge : state.edges) {
+                if (edge.token.hasConditions()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param rootKeys top-level keys of the document
+     * @return the ignored paths which are absolute for the document
+     */
+    BitSet getAbsolutePaths(Set<String> rootKeys) {
+        BitSet result = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (firstKeys[i] == null || rootKeys.contains(firstKeys[i])) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    BitSet getAbsolutePaths(JsonObject source) {
+        return getAbsolutePaths(source, GsonNodeModel.INSTANCE);
+    }
+
+    <N> BitSet getAbsolutePaths(N source, JsonNodeModel<N> model) {
+        BitSet result = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (firstKeys[i] == null || model.get(source, firstKeys[i]) != null) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    // the ignored paths which are partial for the document;
+    BitSet getRelativePaths(BitSet absolutePaths) {
+        BitSet result = new BitSet(size);
+        result.set(0, size);
+        result.andNot(absolutePaths);
+        return result;
+    }
+
+    /**
+     * @return true if one of the states ends an ignored path, read the way the document reads it
+     */
+    static boolean isIgnored(Node[] states, BitSet absolutePaths, BitSet relativePaths) {
+        for (Node state : states) {
+            if (state.ifAbsolute != null && state.ifAbsolute.intersects(absolutePaths)) {
+                return true;
+            }
+            if (state.ifRelative != null && state.ifRelative.intersects(relativePaths)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the ignored elements from the result, each one is tested by walking its path down from the source,
+     * which gives the JsonArrays and elements the array steps are filtered on.
+     */
+    List<JsonElementWithPath> apply(JsonObject source, List<JsonElementWithPath> result) throws Exception {
+        if (isEmpty() || result.isEmpty()) {
+            return result;
+        }
+
+        BitSet absolutePaths = getAbsolutePaths(source);
+        BitSet relativePaths = getRelativePaths(absolutePaths);
+        Iterator<JsonElementWithPath> itr = result.iterator();
+        while (itr.hasNext()) {
+            JsonElementWithPath je = itr.next();
+            PathNode node = (je.getNode() != null) ? je.getNode() : PathNode.parse(je.getLevel());
+            if (node != null && isIgnored(source, node, absolutePaths, relativePaths)) {
+                itr.remove();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return true if the node at the path is removed by an ignored path, the path is walked down from the source
+     */
+    boolean isIgnored(JsonObject source, PathNode path, BitSet absolutePaths, BitSet relativePaths) throws Exception {
+        return isIgnored(source, GsonNodeModel.INSTANCE, path, absolutePaths, relativePaths);
+    }
+
+    <N> boolean isIgnored(N source, JsonNodeModel<N> model, PathNode path, BitSet absolutePaths, BitSet relativePaths) throws Exception {
+        Node[] states = start();
+        N current = source;
+        for (PathNode node : path.getNodes()) {
+            if (node.isIndex()) {
+                if (current == null || !model.isArray(current)) {
+                    return false;
+                }
+                N array = current;
+                int length = model.size(array);
+                current = (node.getIndex() < length) ? model.get(array, node.getIndex()) : null;
+                states = onIndex(states, node.getIndex(), length, current, model);
+            } else {
+                current = (current != null && model.isObject(current)) ? model.get(current, node.getKey()) : null;
+                states = onKey(states, node.getKey());
+            }
+
+            if (isIgnored(states, absolutePaths, relativePaths)) {
+                return true;
+            }
+            if (states.length == 0 && anywhere.keys.isEmpty()) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    static List<List<PathToken>> getElementPatterns(List<PathToken> tokens) {
+        List<List<PathToken>> patterns = new ArrayList<>();
+        List<PathToken> prefix = new ArrayList<>();
+        for (PathToken token : tokens) {
+            if (token.isIndex()) {
+                List<PathToken> pattern = new ArrayList<>(prefix);
+                pattern.add(token);
+                patterns.add(pattern);
+                prefix.add(PathToken.anyIndex());
+            } else {
+                prefix.add(token);
+            }
+        }
+
+        if (patterns.isEmpty() && !tokens.isEmpty()) {
+            patterns.add(tokens);
+        }
+
+        return patterns;
+    }
+
+    private static Node[] trim(Node[] states, int size) {
+        if (size == 0) {
+            return NO_STATES;
+        }
+        return (size == states.length) ? states : Arrays.copyOf(states, size);
+    }
+
+    static final class Node {
+        private final boolean ignoreCase;
+        private final Map<String, Node> keys;
+        private final List<Edge> edges = new ArrayList<>(0);
+        // ignored paths ending here, when read as absolute / partial paths;
+        private BitSet ifAbsolute;
+        private BitSet ifRelative;
+
+        Node(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            this.keys = ignoreCase ? new TreeMap<String, Node>(String.CASE_INSENSITIVE_ORDER) : new HashMap<String, Node>();
+        }
+
+        private Node add(List<PathToken> pattern, int from) {
+            if (from == pattern.size()) {
+                return this;
+            }
+
+            PathToken token = pattern.get(from);
+            Node child;
+            if (token.isIndex()) {
+                child = null;
+                for (Edge edge : edges) {
+                    if (edge.token.toString().equals(token.toString())) { // same content of []
+                        child = edge.node;
+                    }
+                }
+                if (child == null) {
+                    child = new Node(ignoreCase);
+                    edges.add(new Edge(token, child));
+                }
+            } else {
+                child = keys.get(token.getKey());
+                if (child == null) {
+                    child = new Node(ignoreCase);
+                    keys.put(token.getKey(), child);
+                }
+            }
+
+            return child.add(pattern, from + 1);
+        }
+
+        private void setAbsolute(int pathIndex) {
+            if (ifAbsolute == null) {
+                ifAbsolute = new BitSet();
+            }
+            ifAbsolute.set(pathIndex);
+        }
+
+        private void setRelative(int pathIndex) {
+            if (ifRelative == null) {
+                ifRelative = new BitSet();
+            }
+            ifRelative.set(pathIndex);
+        }
+
+        BitSet getIfAbsolute() {
+            return ifAbsolute;
+        }
+
+        BitSet getIfRelative() {
+            return ifRelative;
+        }
+    }
+
+    private static final class Edge {
+        private final PathToken token;
+        private final Node node;
+
+        Edge(PathToken token, Node node) {
+            this.token = token;
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.*;
+
+/**
+ * A JsonObject with its nodes laid out once, for running many queries against the same document.
+ * <p>
+ * Every node below "$" is a row of a table, in BFS order: its JsonElement, its {@link PathNode}, the row of its
+ * parent and, for a JsonArray, its length. The children of a node are consecutive rows, so a partial path is
+ * matched by one loop over the table, without a queue and without building the nodes again. Results share the
+ * {@link PathNode}s of the table, their path strings are only built when asked for.
+ * <pre>
+ * JsonDocumentIndex index = JsonDocumentIndex.of(source);
+ * List&lt;JsonElementWithPath&gt; urls = JsonPath.get(index, "URL", true, ignoredPaths);
+ * List&lt;JsonElementWithPath&gt; labels = JsonPath.get(index, "RETURNS.maxView.value[*].label", true, ignoredPaths);
+ * </pre>
+ * With {@link #of(JsonObject, boolean) keys}, the index also maps every key to the rows where it occurs, and a
+ * partial path like "URL" or "SELLERPRESENCE.sellerName.action.URL" starts from the rows of its rarest key
+ * instead of scanning the table: the steps before that key are checked upwards through the parents, the steps
+ * after it are walked downwards through the children.
+ * <p>
+ * The index does not copy the document, it must not be modified while the index is in use.
+ * Instances are thread-safe.
+ */
+public final class JsonDocumentIndex {
+    // rough sizes on a 64-bit JVM with compressed oops, for getMemoryReport();
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 16;
+    private static final int PATH_NODE = 24;
+    private static final int MAP_ENTRY = 40;
+    private static final int[] NO_ROWS = new int[0];
+
+    private final JsonObject source;
+    private final int size;
+    private final JsonElement[] elements;
+    private final PathNode[] nodes;
+    private final int[] parents;
+    // length of the JsonArray at a row, -1 if it is not a JsonArray;
+    private final int[] lengths;
+    // children of a row are the rows firstChildren[row] to firstChildren[row] + lengths / number of members - 1;
+    private final int[] firstChildren;
+    private final int[] childCounts;
+    // rows of each key, in BFS order, null without the key index;
+    private final Map<String, int[]> keys;
+    private final Map<String, int[]> keysIgnoreCase;
+    private final Set<String> rootKeys;
+
+    private JsonDocumentIndex(JsonObject source, boolean withKeys) {
+        this.source = source;
+
+        List<JsonElement> elements = new ArrayList<>();
+        List<PathNode> nodes = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        elements.add(source);
+        nodes.add(PathNode.ROOT);
+        parents.add(-1);
+        for (int i = 0; i < elements.size(); i++) {
+            JsonElement je = elements.get(i);
+            if (je.isJsonArray()) {
+                JsonArray ja = je.getAsJsonArray();
+                for (int j = 0; j < ja.size(); j++) {
+                    elements.add(ja.get(j));
+                    nodes.add(nodes.get(i).child(j));
+                    parents.add(i);
+                }
+            } else if (je.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> entry : je.getAsJsonObject().entrySet()) {
+                    elements.add(entry.getValue());
+                    nodes.add(nodes.get(i).child(entry.getKey()));
+                    parents.add(i);
+                }
+            }
+        }
+
+        this.size = elements.size();
+        this.elements = elements.toArray(new JsonElement[size]);
+        this.nodes = nodes.toArray(new PathNode[size]);
+        this.parents = new int[size];
+        this.lengths = new int[size];
+        this.firstChildren = new int[size];
+        this.childCounts = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.parents[i] = parents.get(i);
+            this.lengths[i] = this.elements[i].isJsonArray() ? this.elements[i].getAsJsonArray().size() : -1;
+            if (i > 0 && childCounts[this.parents[i]]++ == 0) {
+                firstChildren[this.parents[i]] = i;
+            }
+        }
+        this.keys = withKeys ? indexKeys(false) : null;
+        this.keysIgnoreCase = withKeys ? indexKeys(true) : null;
+        this.rootKeys = Collections.unmodifiableSet(new HashSet<>(source.keySet()));
+    }
+
+    /**
+     * @param source the source of JsonObject
+     * @return the index of the source, without the key index
+     */
+    public static JsonDocumentIndex of(JsonObject source) {
+        return of(source, false);
+    }
+
+    /**
+     * @param source the source of JsonObject
+     * @param keys   if true, also index the rows of every key, which makes partial paths much cheaper
+     *               at the cost of one int per node plus one map entry per distinct key, twice (for ignoreCase);
+     * @return the index of the source
+     */
+    public static JsonDocumentIndex of(JsonObject source, boolean keys) {
+        if (source == null || source.isJsonNull()) {
+            throw new IllegalArgumentException("JsonObject should not be null.");
+        }
+
+        return new JsonDocumentIndex(source, keys);
+    }
+
+    private Map<String, int[]> indexKeys(boolean ignoreCase) {
+        Map<String, List<Integer>> rows = ignoreCase
+                ? new TreeMap<String, List<Integer>>(String.CASE_INSENSITIVE_ORDER)
+                : new HashMap<String, List<Integer>>();
+        for (int i = 1; i < size; i++) {
+            if (!nodes[i].isIndex()) {
+                List<Integer> list = rows.get(nodes[i].getKey());
+                if (list == null) {
+                    list = new ArrayList<>(1);
+                    rows.put(nodes[i].getKey(), list);
+                }
+                list.add(i);
+            }
+        }
+
+        Map<String, int[]> result = ignoreCase
+                ? new TreeMap<String, int[]>(String.CASE_INSENSITIVE_ORDER)
+                : new HashMap<String, int[]>(rows.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : rows.entrySet()) {
+            int[] a = new int[entry.getValue().size()];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = entry.getValue().get(i);
+            }
+            result.put(entry.getKey(), a);
+        }
+        return result;
+    }
+
+    public JsonObject getSource() {
+        return source;
+    }
+
+    /**
+     * @return the number of nodes, "$" included
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the top-level keys, which decide whether a path like "modules.BINSUMMARY" is absolute
+     */
+    public Set<String> getRootKeys() {
+        return rootKeys;
+    }
+
+    boolean isRootKey(String key) {
+        return rootKeys.contains(key);
+    }
+
+    public boolean hasKeys() {
+        return keys != null;
+    }
+
+    /**
+     * @return the rows where the key occurs, in BFS order
+     */
+    int[] getRows(String key, boolean ignoreCase) {
+        int[] rows = ignoreCase ? keysIgnoreCase.get(key) : keys.get(key);
+        return (rows == null) ? NO_ROWS : rows;
+    }
+
+    /**
+     * Matches a partial path through the key index, same result as {@link #match(PathMatcher)}.
+     * <p>
+     * A row matched by the path has, a fixed number of levels above it, an ancestor matched by the rarest key of
+     * the path, so the rows of that key are the only places to look: each one is checked upwards against the steps
+     * before the key and walked downwards through the steps after it.
+     */
+    List<JsonElementWithPath> lookup(List<PathToken> tokens, boolean ignoreCase) throws Exception {
+        int pivot = -1;
+        int[] candidates = null;
+        for (int t = 0; t < tokens.size(); t++) {
+            if (!tokens.get(t).isIndex()) {
+                int[] rows = getRows(tokens.get(t).getKey(), ignoreCase);
+                if (candidates == null || rows.length < candidates.length) {
+                    pivot = t;
+                    candidates = rows;
+                }
+            }
+        }
+
+        List<JsonElementWithPath> result = new ArrayList<>();
+        if (candidates == null) {
+            return result;
+        }
+
+        // a row has a single ancestor at the depth of the pivot, so no row is found twice;
+        BitSet matched = new BitSet(size);
+        for (int row : candidates) {
+            if (isMatchingUpwards(tokens, pivot, row, ignoreCase)) {
+                matchDownwards(tokens, pivot + 1, row, ignoreCase, matched);
+            }
+        }
+
+        for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+            result.add(new JsonElementWithPath(elements[row], nodes[row]));
+        }
+        return result;
+    }
+
+    // tokens[0..pivot - 1] against the ancestors of the row, the first token must not be matched by "$";
+    private boolean isMatchingUpwards(List<PathToken> tokens, int pivot, int row, boolean ignoreCase) throws Exception {
+        for (int t = pivot - 1; t >= 0; t--) {
+            row = parents[row];
+            if (row <= 0 || !isMatching(tokens.get(t), row, ignoreCase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void matchDownwards(List<PathToken> tokens, int t, int row, boolean ignoreCase, BitSet matched) throws Exception {
+        if (t == tokens.size()) {
+            matched.set(row);
+            return;
+        }
+
+        // the elements of a JsonArray are consecutive rows, a range step only visits the selected ones;
+        PathToken token = tokens.get(t);
+        if (token.isIndex() && !token.hasConditions()) {
+            if (lengths[row] > 0) {
+                BitSet indexes = Range.getIndexes(token.getRanges(), lengths[row]);
+                for (int j = indexes.nextSetBit(0); j >= 0; j = indexes.nextSetBit(j + 1)) {
+                    matchDownwards(tokens, t + 1, firstChildren[row] + j, ignoreCase, matched);
+                }
+            }
+            return;
+        }
+
+        for (int child = firstChildren[row]; child < firstChildren[row] + childCounts[row]; child++) {
+            if (isMatching(token, child, ignoreCase)) {
+                matchDownwards(tokens, t + 1, child, ignoreCase, matched);
+            }
+        }
+    }
+
+    private boolean isMatching(PathToken token, int row, boolean ignoreCase) throws Exception {
+        PathNode node = nodes[row];
+        if (token.isIndex()) {
+            return node.isIndex() && PathMatcher.isMatchingFilter(token, node.getIndex(), lengths[parents[row]], elements[row]);
+        }
+        if (node.isIndex()) {
+            return false;
+        }
+        return ignoreCase ? token.getKey().equalsIgnoreCase(node.getKey()) : token.getKey().equals(node.getKey());
+    }
+
+    /**
+     * Matches a partial path against every node, in BFS order, the same way the BFS of {@link CompiledJsonPath} does.
+     */
+    List<JsonElementWithPath> match(PathMatcher matcher) throws Exception {
+        List<JsonElementWithPath> result = new ArrayList<>();
+        int[][] states = new int[size][];
+        states[0] = matcher.start();
+        // the elements of a JsonArray are consecutive rows, its ranges are resolved at its first element;
+        int indexed = -1;
+        BitSet[] indexes = null;
+        for (int i = 1; i < size; i++) {
+            int parent = parents[i];
+            PathNode node = nodes[i];
+            if (node.isIndex()) {
+                if (parent != indexed) {
+                    indexed = parent;
+                    indexes = matcher.getIndexes(states[parent], lengths[parent]);
+                }
+                states[i] = matcher.onIndex(states[parent], indexes, node.getIndex(), lengths[parent], elements[i], GsonNodeModel.INSTANCE, null);
+            } else {
+                states[i] = matcher.onKey(states[parent], node.getKey());
+            }
+            if (matcher.isMatch(states[i])) {
+                result.add(new JsonElementWithPath(elements[i], node));
+            }
+        }
+        return result;
+    }
+
+    JsonElement getElement(int row) {
+        return elements[row];
+    }
+
+    PathNode getNode(int row) {
+        return nodes[row];
+    }
+
+    int getParent(int row) {
+        return parents[row];
+    }
+
+    int getLength(int row) {
+        return lengths[row];
+    }
+
+    /**
+     * @return an estimate of the memory retained by the index itself, the JsonElements belong to the document
+     * and are not counted.
+     */
+    public String getMemoryReport() {
+        long table = 2L * (ARRAY_HEADER + (long) REFERENCE * size) + 4L * (ARRAY_HEADER + 4L * size);
+        long pathNodes = (long) PATH_NODE * (size - 1);
+        long keyIndex = 0;
+        if (hasKeys()) {
+            for (Map<String, int[]> map : Arrays.asList(keys, keysIgnoreCase)) {
+                for (int[] rows : map.values()) {
+                    keyIndex += MAP_ENTRY + ARRAY_HEADER + 4L * rows.length;
+                }
+            }
+        }
+        long total = table + pathNodes + keyIndex;
+
+        return "nodes: " + size
+                + ", table: " + table + " bytes"
+                + ", path nodes: " + pathNodes + " bytes"
+                + (hasKeys() ? ", keys: " + keyIndex + " bytes (" + keys.size() + " distinct)" : "")
+                + ", total: " + total + " bytes";
+    }
+
+    @Override
+    public String toString() {
+        return "JsonDocumentIndex{" + getMemoryReport() + "}";
+    }
+}
@@ -4,32 +4,95 @@ import com.google.gson.JsonElement;
 
 /**
  * @author jzfeng
+ * <p>
+ * The path of a result found by a traversal is kept as a {@link PathNode}, which shares the nodes of its parents
+ * with the other results, the level string is only built, once, by {@link #getLevel()}. Use {@link #getDepth()},
+ * {@link #getKey(int)} and {@link #getIndex(int)} to read the path step by step without building or parsing it.
  */
 
 public class JsonElementWithPath {
     private JsonElement jsonElement;
+    // null until it is built from node by getLevel();
     private String level;
+    // path of the element as the traversal found it, or parsed from level, null if not known yet;
+    private PathNode node;
 
     public JsonElementWithPath(JsonElement jsonElement, String level) {
         this.jsonElement = jsonElement;
         this.level = level;
     }
 
+    JsonElementWithPath(JsonElement jsonElement, PathNode node) {
+        this.jsonElement = jsonElement;
+        this.node = node;
+    }
+
+    // a copy sharing the JsonElement and the path, which setLevel(String) on either one does not change;
+    JsonElementWithPath(JsonElementWithPath other) {
+        this.jsonElement = other.jsonElement;
+        this.level = other.level;
+        this.node = other.node;
+    }
+
     public JsonElement getJsonElement() {
         return this.jsonElement;
     }
 
+    /**
+     * @return the path of the element, e.g. "$.modules.RETURNS.maxView.value[3]", built by the first call
+     * unless it was given to the constructor or to {@link #setLevel(String)}
+     */
     public String getLevel() {
-        return this.level;
+        if (level == null) {
+            level = node.toString();
+        }
+        return level;
     }
 
     public void setLevel(String level) {
         this.level = level;
+        this.node = null;
+    }
+
+    /**
+     * @return the number of steps below "$", e.g. 5 for "$.modules.RETURNS.maxView.value[3]";
+     * for a level given as a String, the steps are parsed from it, 0 if it cannot be parsed
+     */
+    public int getDepth() {
+        return path().getDepth();
+    }
+
+    /**
+     * @param i 0 for the first step below "$", up to getDepth() - 1
+     * @return the key of the step, e.g. "modules" for 0, null if the step is an array index
+     */
+    public String getKey(int i) {
+        return path().getAncestor(i + 1).getKey();
+    }
+
+    /**
+     * @param i 0 for the first step below "$", up to getDepth() - 1
+     * @return the array index of the step, e.g. 3 for 4, -1 if the step is a key
+     */
+    public int getIndex(int i) {
+        return path().getAncestor(i + 1).getIndex();
+    }
+
+    PathNode getNode() {
+        return node;
+    }
+
+    private PathNode path() {
+        if (node == null) {
+            PathNode parsed = PathNode.parse(level);
+            node = (parsed != null) ? parsed : PathNode.ROOT;
+        }
+        return node;
     }
 
     @Override
     public String toString() {
-        return level + " : " + jsonElement;
+        return getLevel() + " : " + jsonElement;
     }
 
 
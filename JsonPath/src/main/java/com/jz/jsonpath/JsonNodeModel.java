@@ -0,0 +1,72 @@
+package com.jz.jsonpath;
+
+import java.util.Map;
+
+/**
+ * What the engine needs to know about a Json tree, so that paths, filters and ignored paths run against any parser's
+ * tree: {@link GsonNodeModel} for Gson's JsonElement, {@link FastjsonNodeModel} for fastjson's JSONObject.
+ * <p>
+ * Members are visited in the order of {@link #members(Object)}, which is the order of the results, so a model
+ * should keep the order of the document.
+ *
+ * @param <N> type of the nodes of the tree
+ */
+public interface JsonNodeModel<N> {
+
+    boolean isObject(N node);
+
+    boolean isArray(N node);
+
+    /**
+     * @return false for null, objects and arrays
+     */
+    boolean isPrimitive(N node);
+
+    /**
+     * @return the number of members of an object, or of elements of an array
+     */
+    int size(N node);
+
+    /**
+     * @return the member of an object, null if there is none
+     */
+    N get(N object, String key);
+
+    /**
+     * @return the element of an array
+     */
+    N get(N array, int index);
+
+    /**
+     * @return the members of an object, in the order of the document
+     */
+    Iterable<Map.Entry<String, N>> members(N object);
+
+    boolean isNumber(N node);
+
+    boolean isString(N node);
+
+    boolean isBoolean(N node);
+
+    /**
+     * @return the value of a number, as the parser holds it, e.g. Gson's LazilyParsedNumber or fastjson's Integer
+     */
+    Number asNumber(N number);
+
+    boolean asBoolean(N bool);
+
+    /**
+     * @return the text of a primitive, e.g. Refund for the string "Refund", 12.5 for the number 12.5
+     */
+    String asString(N primitive);
+
+    /**
+     * @return the node as Json, e.g. "Refund" with the quotes for the string "Refund"
+     */
+    String toJson(N node);
+
+    /**
+     * @return a number node, for the result of length()
+     */
+    N number(int value);
+}
@@ -2,8 +2,12 @@ package com.jz.jsonpath;
 
 import com.google.gson.*;
 
-import java.io.File;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static com.jz.jsonpath.Range.getRange;
 
@@ -138,6 +142,97 @@ public class JsonPath {
     }
 
 
+    /**
+     * Same as {@link #get(String, String, boolean, String[])}, the counters and the time of each phase,
+     * parsing and compiling included, are added to stats.
+     *
+     * @param stats see {@link QueryStats}, could be null;
+     */
+    public static List<JsonElementWithPath> get(
+            String source, String path, boolean ignoreCase, String[] ignoredPaths, QueryStats stats) throws Exception {
+        if (source == null || source.length() == 0 || path == null || path.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        JsonObject src = new JsonParser().parse(source).getAsJsonObject();
+        if (stats != null) {
+            stats.addTime(QueryStats.Phase.PARSE, System.nanoTime() - start);
+        }
+
+        return get(src, path, ignoreCase, ignoredPaths, stats);
+    }
+
+    /**
+     * Same as {@link #get(JsonObject, String, boolean, String[])}, see {@link QueryStats}.
+     *
+     * @param stats could be null;
+     */
+    public static List<JsonElementWithPath> get(
+            JsonObject source, String path, boolean ignoreCase, String[] ignoredPaths, QueryStats stats) throws Exception {
+        if (path == null || path.length() == 0 || source == null || source.isJsonNull()) {
+            return new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        CompiledJsonPath compiled = CompiledJsonPath.compile(path, ignoreCase, ignoredPaths);
+        if (stats != null) {
+            stats.addTime(QueryStats.Phase.COMPILE, System.nanoTime() - start);
+        }
+
+        return compiled.evaluate(source, stats);
+    }
+
+    /**
+     * Streaming version of {@link #get(String, String, boolean, String[])}, the document is never held as a JsonObject,
+     * only the matched JsonElements are materialized.
+     *
+     * @param source     the source of Json, not closed;
+     * @param path       standard json path;
+     * @param ignoreCase if true, it will ignore the case of path; if false, it will strictly match path;
+     * @return returns a a list of {@link JsonElementWithPath}
+     */
+    public static List<JsonElementWithPath> get(
+            Reader source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (source == null || path == null || path.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        return CompiledJsonPath.compile(path, ignoreCase, ignoredPaths).evaluate(source);
+    }
+
+    /**
+     * @param source UTF-8 encoded Json, not closed;
+     * @see #get(Reader, String, boolean, String[])
+     */
+    public static List<JsonElementWithPath> get(
+            InputStream source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (source == null) {
+            return new ArrayList<>();
+        }
+
+        return get(new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8)), path, ignoreCase, ignoredPaths);
+    }
+
+    /**
+     * Streaming version of {@link #get(String, String, boolean, String[])} for a file, which is read from its
+     * memory-mapped pages, see {@link Utils#newMappedReader(File)}; neither the text nor the JsonObject of the
+     * document is built.
+     *
+     * @param source a UTF-8 encoded Json file
+     * @see #get(Reader, String, boolean, String[])
+     */
+    public static List<JsonElementWithPath> get(
+            File source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (source == null || path == null || path.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        try (Reader reader = Utils.newMappedReader(source)) {
+            return get(reader, path, ignoreCase, ignoredPaths);
+        }
+    }
+
     /**
      * @param source the source of JsonObject
      * @param path   standard json path;
@@ -163,87 +258,208 @@ public class JsonPath {
             return result;
         }
 
-        String regex = generateRegex(path, ignoreCase);
-        Map<String, JsonArray> cachedJsonArrays = Utils.getJsonArrayMap(source, ignoreCase); // save JsonArray to map, in order to reduce time complexibility
+        return CompiledJsonPath.compile(path, ignoreCase, ignoredPaths).evaluate(source);
+    }
+
+    /**
+     * Same as {@link #get(JsonObject, String, boolean, String[])}, but stops as soon as n results are found.
+     *
+     * @param n the maximum number of results
+     * @return the first n results of {@link #get(JsonObject, String, boolean, String[])}
+     */
+    public static List<JsonElementWithPath> limit(
+            JsonObject source, String path, boolean ignoreCase, String[] ignoredPaths, int n) throws Exception {
+        if (path == null || path.length() == 0 || source == null || source.isJsonNull()) {
+            return new ArrayList<>();
+        }
 
-        Map<String, List<IFilter>> filters = getFilters(updatePaths2Full(new String[]{path}, source), ignoreCase); // generate filters from path;
-        Map<String, List<IFilter>> matchedFilters = updateFilters2Full(cachedJsonArrays, filters);//filters with absolute path;
+        return CompiledJsonPath.compile(path, ignoreCase, ignoredPaths).limit(source, n);
+    }
 
+    /**
+     * @return the first result of {@link #get(JsonObject, String, boolean, String[])}, or null if there is none;
+     * the traversal stops at the first result
+     */
+    public static JsonElementWithPath first(
+            JsonObject source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        List<JsonElementWithPath> result = limit(source, path, ignoreCase, ignoredPaths, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
 
-        boolean isAbsolutePath = isFullPath(path, source);
-        boolean isFinished = false;
+    /**
+     * @return true if {@link #get(JsonObject, String, boolean, String[])} would not be empty;
+     * the traversal stops at the first result
+     */
+    public static boolean exists(
+            JsonObject source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        return first(source, path, ignoreCase, ignoredPaths) != null;
+    }
 
-        // to support length() function;
-        if (path.matches("(.*)(\\.length\\(\\)$)")) { // case: [path == $.listing.termsAndPolicies.length()]
-            path = path.replaceAll("(.*)(\\.length\\(\\)$)", "$1");
-            int length = length(source, path, ignoreCase);
-            result.add(new JsonElementWithPath(new JsonPrimitive(length), path));
-            return result;
+    /**
+     * Lazy version of {@link #get(JsonObject, String, boolean, String[])}, see {@link CompiledJsonPath#iterator(JsonObject)}.
+     */
+    public static Iterator<JsonElementWithPath> iterator(
+            JsonObject source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (path == null || path.length() == 0) {
+            return Collections.<JsonElementWithPath>emptyList().iterator();
         }
 
-        Queue<JsonElementWithPath> queue = new LinkedList<JsonElementWithPath>();
-        queue.offer(new JsonElementWithPath(source, "$"));
-        while (!queue.isEmpty()) {
-            int size = queue.size();
-            //Traverse by level
-            for (int i = 0; i < size; i++) {
-                JsonElementWithPath org = queue.poll();
-                String currentLevel = org.getLevel();
-                JsonElement je = org.getJsonElement();
-//                System.out.println(currentLevel);
-
-                if (je.isJsonArray()) {
-                    JsonArray ja = je.getAsJsonArray();
-                    for (int j = 0; j < ja.size(); j++) {
-                        String level = currentLevel + "[" + j + "]";
-                        JsonElementWithPath tmp = new JsonElementWithPath(ja.get(j), level);
-                        queue.offer(tmp);
-                        if (ignoreCase) {
-                            level = level.toLowerCase();
-                        }
-                        if (level.matches(regex)) {
-                            isFinished = true;
-                            if (isMatchingFilters(cachedJsonArrays, level, matchedFilters)) {
-                                result.add(tmp);
-                            }
-                        }
-                    }
-                } else if (je.isJsonObject()) {
-                    JsonObject jo = je.getAsJsonObject();
-                    for (Map.Entry<String, JsonElement> entry : jo.entrySet()) {
-                        String level = currentLevel + "." + entry.getKey();
-                        JsonElementWithPath tmp = new JsonElementWithPath(entry.getValue(), level);
-                        queue.offer(tmp);
-                        if (ignoreCase) {
-                            level = level.toLowerCase();
-                        }
-                        if (level.matches(regex)) {
-                            isFinished = true;
-                            if (isMatchingFilters(cachedJsonArrays, level, matchedFilters)) {
-                                result.add(tmp);
-                            }
-                        }
-                    }
-                }
-            }
+        return CompiledJsonPath.compile(path, ignoreCase, ignoredPaths).iterator(source);
+    }
+
+    /**
+     * Lazy version of {@link #get(JsonObject, String, boolean, String[])}, short-circuiting operations like
+     * findFirst() or anyMatch() stop the traversal, see {@link CompiledJsonPath#iterator(JsonObject)}.
+     */
+    public static Stream<JsonElementWithPath> stream(
+            JsonObject source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (path == null || path.length() == 0) {
+            return Stream.empty();
+        }
+
+        return CompiledJsonPath.compile(path, ignoreCase, ignoredPaths).stream(source);
+    }
+
+    /**
+     * Parallel version of {@link #get(JsonObject, String, boolean, String[])} for very large documents, the tasks run
+     * in the common ForkJoinPool, see {@link CompiledJsonPath#evaluate(JsonObject, ForkJoinPool, int)}.
+     *
+     * @param threshold containers with more members or elements than the threshold are split into tasks;
+     * @return the same result as {@link #get(JsonObject, String, boolean, String[])}, in the same order
+     */
+    public static List<JsonElementWithPath> getParallel(
+            JsonObject source, String path, boolean ignoreCase, String[] ignoredPaths, int threshold) throws Exception {
+        if (path == null || path.length() == 0 || source == null || source.isJsonNull()) {
+            return new ArrayList<>();
+        }
+
+        return CompiledJsonPath.compile(path, ignoreCase, ignoredPaths).evaluate(source, ForkJoinPool.commonPool(), threshold);
+    }
 
-            // current level is BFS done which means all possible candidates are already captured in the result,
-            // end BFS by directly returning result;
-            if (isAbsolutePath && isFinished) {
-                return result;
+    /**
+     * Evaluates all the paths with one traversal of the document, much cheaper than calling get() for every path.
+     *
+     * @param source       the source of JsonObject
+     * @param paths        standard json paths;
+     * @param ignoreCase   if true, it will ignore the case of paths; if false, it will strictly match paths;
+     * @param ignoredPaths JsonPaths to be removed from the result of every path, could be null;
+     * @return the result of each path, same as {@link #get(JsonObject, String, boolean, String[])}, in the order of the paths
+     */
+    public static Map<String, List<JsonElementWithPath>> getAll(
+            JsonObject source, List<String> paths, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        List<CompiledJsonPath> compiled = compileAll(paths, ignoreCase, ignoredPaths);
+        return toMap(compiled, CompiledJsonPath.evaluate(source, compiled));
+    }
+
+    /**
+     * @param source a UTF-8 encoded Json file, parsed from its memory-mapped pages, see {@link Utils#parseJsonObject(File)}
+     * @see #getAll(JsonObject, List, boolean, String[])
+     */
+    public static Map<String, List<JsonElementWithPath>> getAll(
+            File source, List<String> paths, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        return getAll((source == null) ? null : Utils.parseJsonObject(source), paths, ignoreCase, ignoredPaths);
+    }
+
+    /**
+     * Same as {@link #getAll(JsonObject, List, boolean, String[])}, against a document indexed once by {@link JsonDocumentIndex}.
+     */
+    public static Map<String, List<JsonElementWithPath>> getAll(
+            JsonDocumentIndex index, List<String> paths, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        List<CompiledJsonPath> compiled = compileAll(paths, ignoreCase, ignoredPaths);
+        return toMap(compiled, CompiledJsonPath.evaluate(index, compiled));
+    }
+
+    // the distinct, non empty paths, in order, also used by BulkQuery;
+    static List<CompiledJsonPath> compileAll(List<String> paths, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        List<CompiledJsonPath> compiled = new ArrayList<>();
+        if (paths == null) {
+            return compiled;
+        }
+
+        Set<String> seen = new HashSet<>();
+        for (String path : paths) {
+            if (path != null && path.length() > 0 && seen.add(path)) {
+                compiled.add(CompiledJsonPath.compile(path, ignoreCase, ignoredPaths));
             }
+        }
+        return compiled;
+    }
 
+    static Map<String, List<JsonElementWithPath>> toMap(
+            List<CompiledJsonPath> compiled, List<List<JsonElementWithPath>> res) {
+        Map<String, List<JsonElementWithPath>> result = new LinkedHashMap<>();
+        for (int i = 0; i < compiled.size(); i++) {
+            result.put(compiled.get(i).getPath(), res.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @see #getAll(JsonObject, List, boolean, String[])
+     */
+    public static Map<String, List<JsonElementWithPath>> getAll(
+            String source, List<String> paths, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (source == null || source.length() == 0) {
+            return getAll((JsonObject) null, paths, ignoreCase, ignoredPaths);
         }
 
-        return applyIgnoredPaths(result, ignoredPaths, ignoreCase, source, cachedJsonArrays);
+        JsonParser parser = new JsonParser();
+        return getAll(parser.parse(source).getAsJsonObject(), paths, ignoreCase, ignoredPaths);
     }
 
+    /**
+     * @param source   the source of JsonObject
+     * @param compiled a JsonPath compiled by {@link CompiledJsonPath#compile(String, boolean, String[])}
+     * @return returns a a list of {@link JsonElementWithPath}
+     */
+    public static List<JsonElementWithPath> get(JsonObject source, CompiledJsonPath compiled) throws Exception {
+        if (source == null || source.isJsonNull() || compiled == null) {
+            return new ArrayList<>();
+        }
+
+        return compiled.evaluate(source);
+    }
 
     /**
-     * Very expensive if you do not enter full JsonPath, N square time complexibility;
+     * Same as {@link #get(JsonObject, String, boolean, String[])}, against a document indexed once by {@link JsonDocumentIndex},
+     * so that repeated queries do not traverse the document and build its paths again.
+     *
+     * @param index      the index of the source
+     * @param path       standard json path;
+     * @param ignoreCase if true, it will ignore the case of path; if false, it will strictly match path;
+     * @return returns a a list of {@link JsonElementWithPath}
+     */
+    public static List<JsonElementWithPath> get(
+            JsonDocumentIndex index, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (index == null || path == null || path.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        return CompiledJsonPath.compile(path, ignoreCase, ignoredPaths).evaluate(index);
+    }
+
+    public static List<JsonElementWithPath> get(JsonDocumentIndex index, String path) throws Exception {
+        return get(index, path, false, new String[]{});
+    }
+
+    public static List<JsonElementWithPath> get(JsonDocumentIndex index, CompiledJsonPath compiled) throws Exception {
+        if (index == null || compiled == null) {
+            return new ArrayList<>();
+        }
+
+        return compiled.evaluate(index);
+    }
+
+
+    /**
+     * Removes the results selected by the ignored paths, see {@link IgnoredPathIndex}.
+     * A result of depth d walks the trie of the ignored paths instead of being compared with each of them: O(d^2)
+     * steps in the worst case, and each array step also tests the index patterns of the trie node it reaches.
      *
      * @param result
      * @param ignoredPaths
+     * @param cachedJsonArrays ignored, could be null; kept for the callers of this method, the array steps are
+     *                         resolved against source;
      * @return
      */
     public static List<JsonElementWithPath> applyIgnoredPaths(
@@ -257,46 +473,7 @@ public class JsonPath {
             return result;
         }
 
-        ignoredPaths = updatePaths2Full(ignoredPaths, source);
-        Set<String> absolutePaths = getFullPathsWithoutArray(ignoredPaths, source); // for performance purpose;
-        Map<String, List<IFilter>> ignoredFilters = getFilters(ignoredPaths, ignoreCase);
-        Map<String, List<IFilter>> ignoredMatchedFilters = updateFilters2Full(cachedJsonArrays, ignoredFilters);
-
-        //get regex for each ignoredPath
-        List<String> regexs = new ArrayList<>();
-        for (String ignoredPath : ignoredPaths) {
-            if (ignoredPath.indexOf('[') == -1) {
-                regexs.add(generateRegex(ignoredPath.trim(), false) + ".*");
-            }
-        }
-
-        Iterator<JsonElementWithPath> itr = result.iterator();
-        while (itr.hasNext()) {
-            JsonElementWithPath je = itr.next();
-            String level = je.getLevel();
-            if (absolutePaths.contains(level)) {
-                itr.remove();
-                continue;
-            }
-
-            for (String regex : regexs) {
-                if (level.matches(regex)) {
-                    itr.remove();
-                    break;
-                }
-            }
-
-            if (ignoreCase) {
-                level = level.toLowerCase();
-            }
-            if (isMatchingIgnoredFilters(cachedJsonArrays, level, ignoredMatchedFilters)) {
-                itr.remove();
-                continue;
-            }
-
-        }
-
-        return result;
+        return new IgnoredPathIndex(ignoredPaths, ignoreCase).apply(source, result);
     }
 
 
@@ -374,7 +551,7 @@ public class JsonPath {
         }
 
         String tmp = level.substring(0, level.lastIndexOf("["));
-        System.out.print("tmp is " + tmp);
+//        System.out.print("tmp is " + tmp);
         int length = cachedJsonArrays.get(tmp).getAsJsonArray().size();
 
         StringBuilder prefix = new StringBuilder();
@@ -449,105 +626,13 @@ public class JsonPath {
      * @return
      */
     public static boolean isMatchingConditions(JsonObject jo, List<Condition> conditions) throws Exception {
-        boolean result = isMatchingCondition(jo, conditions.get(0));
-
-        for (int i = 1; i < conditions.size(); i++) {
-            String logicalOperator = conditions.get(i - 1).getLogicalOperator();
-            if (logicalOperator.equals("&&")) {
-                result = result && (isMatchingCondition(jo, conditions.get(i)));
-            } else if (logicalOperator.equals("||")) {
-                result = result || (isMatchingCondition(jo, conditions.get(i)));
-            }
-        }
-
-        return result;
+        return Condition.isMatching(conditions, jo, GsonNodeModel.INSTANCE);
     }
 
 
     //"<", ">", "<=", ">=", "==", "!=", "=~", "in", "nin", "subsetof", "size", "empty", "notempty"
     public static boolean isMatchingCondition(JsonObject jo, Condition condition) throws Exception {
-        if (!condition.isValid()) {
-            return false;
-        }
-
-        Set<String> keys = Utils.getKeys(jo);
-        String left = condition.getLeft().trim();
-        String operator = condition.getOperator().trim();
-        String right = condition.getRight();
-        if (!keys.contains(left)) {
-            return false;
-        }
-
-        boolean result = false;
-        JsonElement je = jo.get(left);
-        String valueAsString = je.getAsString();
-        String valueAsJE = je.toString();
-
-        if (!Condition.OPERATORS.contains(operator)) {
-            throw new Exception("Unsupported Operator : " + operator);
-        }
-
-        //to-do, refactoring, using enum??
-        if (operator.equals("<")) {
-            result = ((valueAsString.matches("(\\d+)\\.(\\d+)")) ? (Double.parseDouble(valueAsString) < Double.parseDouble(right)) : (Integer.parseInt(valueAsString) < Integer.parseInt(right)));
-        } else if (operator.equals(">")) {
-            result = ((valueAsString.matches("(\\d+)\\.(\\d+)")) ? (Double.parseDouble(valueAsString) > Double.parseDouble(right)) : (Integer.parseInt(valueAsString) > Integer.parseInt(right)));
-        } else if (operator.equals(">=")) {
-            result = ((valueAsString.matches("(\\d+)\\.(\\d+)")) ? (Double.parseDouble(valueAsString) >= Double.parseDouble(right)) : (Integer.parseInt(valueAsString) >= Integer.parseInt(right)));
-        } else if (operator.equals("<=")) {
-            result = ((valueAsString.matches("(\\d+)\\.(\\d+)")) ? (Double.parseDouble(valueAsString) <= Double.parseDouble(right)) : (Integer.parseInt(valueAsString) <= Integer.parseInt(right)));
-        } else if (operator.equals("==")) {
-            result = valueAsJE.equals(right);
-        } else if (operator.equals("!=")) {
-            result = !valueAsJE.equals(right);
-        } else if (operator.equals("=~")) {
-            result = valueAsJE.matches(right);
-        } else if (operator.equals("in")) {
-            String[] strs = right.trim().substring(1, right.length() - 1).split("\\s{0,},\\s{0,}");
-            Set<String> set = new HashSet<>();
-            for (String str : strs) {
-                set.add(str.trim());
-            }
-            result = set.contains(valueAsJE);
-        } else if (operator.equals("nin")) {
-            String[] strs = right.trim().substring(1, right.length() - 1).split("\\s{0,},\\s{0,}");
-            Set<String> set = new HashSet<>();
-            for (String str : strs) {
-                set.add(str.trim());
-            }
-            result = !set.contains(valueAsJE);
-        } else if (operator.equals("subsetof")) {
-            //if(je.isJsonPrimitive()) {
-            //} else if (je.isJsonArray()) {
-            //} else if (je.isJsonObject()) {
-            //}
-        } else if (operator.equals("size")) {
-            if (je.isJsonPrimitive()) {
-                result = (valueAsString.length() == Integer.parseInt(right));
-            } else if (je.isJsonArray()) {
-                result = (je.getAsJsonArray().size() == Integer.parseInt(right));
-            } else if (je.isJsonObject()) {
-                result = (je.getAsJsonObject().entrySet().size() == Integer.parseInt(right));
-            }
-        } else if (operator.equals("empty")) {
-            if (je.isJsonPrimitive()) {
-                result = valueAsString.equals("");
-            } else if (je.isJsonArray()) {
-                result = (je.getAsJsonArray().size() == 0);
-            } else if (je.isJsonObject()) {
-                result = (je.getAsJsonObject().entrySet().size() == 0);
-            }
-        } else if (operator.equals("notempty")) {
-            if (je.isJsonPrimitive()) {
-                result = !valueAsString.equals("");
-            } else if (je.isJsonArray()) {
-                result = (je.getAsJsonArray().size() != 0);
-            } else if (je.isJsonObject()) {
-                result = (je.getAsJsonObject().entrySet().size() != 0);
-            }
-        }
-
-        return result;
+        return condition.isMatching(jo);
     }
 
 
@@ -874,8 +959,24 @@ public class JsonPath {
             return false;
         }
 
+        List<Pattern> patterns = new ArrayList<>(regexs.size());
         for (String regex : regexs) {
-            if (path.matches(regex)) {
+            patterns.add(Pattern.compile(regex));
+        }
+
+        return isPathMatchingPatterns(path, patterns);
+    }
+
+    /**
+     * Same as {@link #isPathMatchingRegxs(String, List)}, compile the patterns once if you check many paths;
+     */
+    public static boolean isPathMatchingPatterns(String path, List<Pattern> patterns) {
+        if (path == null || path.length() == 0) {
+            return false;
+        }
+
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(path).matches()) {
                 return true;
             }
         }
@@ -0,0 +1,205 @@
+package com.jz.jsonpath;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Results of {@link JsonPath#get(JsonObject, String, boolean, String[])} kept by document and query, for services
+ * which run the same queries against the same documents again, e.g. on retries.
+ * <p>
+ * A document is identified by a token of the caller, e.g. an id or a version, which must change when the document
+ * changes. The query is the path, ignoreCase and the ignored paths, in any order. The cache is bounded by a number of
+ * entries or by a number of results, the least recently used entries are evicted first. It is safe for concurrent
+ * use and does not lock the whole cache, a query running for a missing entry only blocks the callers of the same entry.
+ * <pre>
+ * JsonPathCache cache = JsonPathCache.maximumSize(10000);
+ * List&lt;JsonElementWithPath&gt; res = cache.get(responseId, json, "URL", true, ignoredPaths);
+ * </pre>
+ * Hits return copies of the cached results, their levels can be changed, the JsonElements are shared and must not be
+ * modified.
+ */
+public final class JsonPathCache {
+    private final Cache<Key, List<JsonElementWithPath>> cache;
+
+    private JsonPathCache(Cache<Key, List<JsonElementWithPath>> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param maxEntries the maximum number of queries kept
+     */
+    public static JsonPathCache maximumSize(long maxEntries) {
+        return new JsonPathCache(CacheBuilder.newBuilder().maximumSize(maxEntries).recordStats()
+                .<Key, List<JsonElementWithPath>>build());
+    }
+
+    /**
+     * @param maxResults the maximum number of results kept, an empty result counts as one
+     */
+    public static JsonPathCache maximumWeight(long maxResults) {
+        return new JsonPathCache(CacheBuilder.newBuilder().maximumWeight(maxResults)
+                .weigher(new Weigher<Key, List<JsonElementWithPath>>() {
+                    @Override
+                    public int weigh(Key key, List<JsonElementWithPath> value) {
+                        return Math.max(value.size(), 1);
+                    }
+                }).recordStats().<Key, List<JsonElementWithPath>>build());
+    }
+
+    /**
+     * @param document token of the document, e.g. its id or version, compared with equals()
+     * @param source   the document, only parsed if the query is not cached
+     * @return the same result as {@link JsonPath#get(String, String, boolean, String[])}
+     */
+    public List<JsonElementWithPath> get(
+            Object document, String source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (source == null || source.length() == 0 || path == null || path.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        return get(new Key(document, path, ignoreCase, ignoredPaths), source);
+    }
+
+    /**
+     * @param document token of the document, e.g. its id or version, compared with equals()
+     * @return the same result as {@link JsonPath#get(JsonObject, String, boolean, String[])}
+     */
+    public List<JsonElementWithPath> get(
+            Object document, JsonObject source, String path, boolean ignoreCase, String[] ignoredPaths) throws Exception {
+        if (path == null || path.length() == 0 || source == null || source.isJsonNull()) {
+            return new ArrayList<>();
+        }
+
+        return get(new Key(document, path, ignoreCase, ignoredPaths), source);
+    }
+
+    // source is a String or a JsonObject;
+    private List<JsonElementWithPath> get(final Key key, final Object source) throws Exception {
+        try {
+            List<JsonElementWithPath> cached = cache.get(key, new Callable<List<JsonElementWithPath>>() {
+                @Override
+                public List<JsonElementWithPath> call() throws Exception {
+                    JsonObject jo = (source instanceof JsonObject)
+                            ? (JsonObject) source : new JsonParser().parse((String) source).getAsJsonObject();
+                    CompiledJsonPath compiled = CompiledJsonPath.compile(key.path, key.ignoreCase, key.query);
+                    return Collections.unmodifiableList(compiled.evaluate(jo));
+                }
+            });
+
+            List<JsonElementWithPath> result = new ArrayList<>(cached.size());
+            for (JsonElementWithPath je : cached) {
+                result.add(new JsonElementWithPath(je));
+            }
+            return result;
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            // the query failed, nothing is cached and its own exception is thrown;
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the results of a document, e.g. when it changes without a new token.
+     */
+    public void invalidate(Object document) {
+        Iterator<Key> itr = cache.asMap().keySet().iterator();
+        while (itr.hasNext()) {
+            if (itr.next().document.equals(document)) {
+                itr.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return the number of queries kept, approximately
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * @return the entries removed to stay within the maximum size or weight, invalidated entries are not counted
+     */
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "JsonPathCache{size: " + size() + ", hits: " + getHitCount() + ", misses: " + getMissCount()
+                + ", evictions: " + getEvictionCount() + "}";
+    }
+
+    // a document and a query, the paths are compared as given: the ignored paths are a sorted set, their order does not
+    // change the result;
+    private static final class Key {
+        private final Object document;
+        private final String path;
+        private final boolean ignoreCase;
+        private final SortedSet<String> ignoredPaths;
+        // the ignored paths of the first caller, which the query is compiled with;
+        private final String[] query;
+
+        Key(Object document, String path, boolean ignoreCase, String[] ignoredPaths) {
+            if (document == null) {
+                throw new IllegalArgumentException("The token of the document should not be null.");
+            }
+
+            this.document = document;
+            this.path = path;
+            this.ignoreCase = ignoreCase;
+            this.ignoredPaths = new TreeSet<>();
+            if (ignoredPaths != null) {
+                for (String ignoredPath : ignoredPaths) {
+                    if (ignoredPath != null) {
+                        this.ignoredPaths.add(ignoredPath);
+                    }
+                }
+            }
+            this.query = (ignoredPaths == null) ? null : ignoredPaths.clone();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) obj;
+            return ignoreCase == key.ignoreCase && document.equals(key.document) && path.equals(key.path)
+                    && ignoredPaths.equals(key.ignoredPaths);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(document, path, ignoreCase, ignoredPaths);
+        }
+    }
+}
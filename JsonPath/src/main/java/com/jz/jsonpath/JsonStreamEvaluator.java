@@ -0,0 +1,341 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.util.*;
+
+/**
+ * Evaluates a {@link CompiledJsonPath} over a {@link JsonReader}, without building the JsonObject of the whole document.
+ * <p>
+ * The document is read depth first and the current path is tracked on a stack. Matched elements are materialized
+ * along with their subtree; anything else is read through, or skipped by {@link JsonReader#skipValue()} once it
+ * can not contain a match. Only arrays filtered by negative indexes like [-2] are materialized to know their length,
+ * and only elements filtered by conditions are materialized to evaluate them. The ranges of a materialized array are
+ * resolved once against its length, the elements of an array read from the stream are tested one by one, its length
+ * is not known yet.
+ * <p>
+ * Whether "modules.X" is absolute is only known once the top-level keys have been read, so candidates are collected
+ * for both readings and resolved at the end, same for the ignored paths. Candidates are then sorted by depth and
+ * document order, which is the order of the BFS of {@link CompiledJsonPath#evaluate(JsonObject)}.
+ * <p>
+ * One instance per evaluation, it is not thread-safe.
+ */
+final class JsonStreamEvaluator {
+    private final String firstKey;
+    private final PathMatcher absolute;
+    private final PathMatcher relative;
+    private final IgnoredPathIndex ignored;
+
+    private boolean isAbsolutePath;
+    private boolean isResolved;
+    private final Set<String> rootKeys = new HashSet<>();
+    private final List<Candidate> candidates = new ArrayList<>();
+    private final List<Object> segments = new ArrayList<>();
+    private long seq;
+
+    /**
+     * @param firstKey         first key of a path not starting with "$", otherwise null;
+     * @param absolute         matcher of the path read as an absolute path;
+     * @param relative         matcher of the path read as a partial path, null if the path starts with "$";
+     * @param ignored          the ignored paths;
+     */
+    JsonStreamEvaluator(String firstKey, PathMatcher absolute, PathMatcher relative, IgnoredPathIndex ignored) {
+        this.firstKey = firstKey;
+        this.absolute = absolute;
+        this.relative = relative;
+        this.ignored = ignored;
+        this.isAbsolutePath = (firstKey == null);
+        this.isResolved = (firstKey == null);
+    }
+
+    List<JsonElementWithPath> evaluate(JsonReader reader) throws Exception {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new IllegalStateException("Not a JSON Object: " + reader.peek());
+        }
+
+        Context root = new Context(absolute.start(),
+                (relative == null) ? PathMatcher.NO_STATES : relative.start(), ignored.start(), null, null);
+
+        seq++;
+        streamObject(reader, root, true);
+        isResolved = true;
+
+        return getResult();
+    }
+
+    private void onRootKey(String key) {
+        rootKeys.add(key);
+        if (!isResolved && key.equals(firstKey)) {
+            // nothing read so far can be under the first key, only absolute matches are kept from now on;
+            isAbsolutePath = true;
+            isResolved = true;
+            Iterator<Candidate> itr = candidates.iterator();
+            while (itr.hasNext()) {
+                if (!itr.next().isAbsoluteMatch) {
+                    itr.remove();
+                }
+            }
+        }
+    }
+
+    private void streamObject(JsonReader reader, Context context, boolean isRoot) throws Exception {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (isRoot) {
+                onRootKey(key);
+            }
+            segments.add(key);
+            streamValue(reader, onKey(context, key));
+            segments.remove(segments.size() - 1);
+        }
+        reader.endObject();
+    }
+
+    private void streamArray(JsonReader reader, Context context) throws Exception {
+        if (needsLength(context)) {
+            visitChildren(JsonParser.parseReader(reader), context);
+            return;
+        }
+
+        boolean needsElement = needsElement(context);
+        reader.beginArray();
+        for (int index = 0; reader.hasNext(); index++) {
+            segments.add(index);
+            if (needsElement) {
+                JsonElement element = JsonParser.parseReader(reader);
+                visitValue(element, onIndex(context, index, -1, element));
+            } else {
+                streamValue(reader, onIndex(context, index, -1, null));
+            }
+            segments.remove(segments.size() - 1);
+        }
+        reader.endArray();
+    }
+
+    private void streamValue(JsonReader reader, Context context) throws Exception {
+        long id = seq++;
+        if (isMatch(context)) {
+            JsonElement element = JsonParser.parseReader(reader);
+            addCandidate(element, context, id);
+            visitChildren(element, context);
+            return;
+        }
+
+        JsonToken token = reader.peek();
+        if (!canMatch(context)) {
+            reader.skipValue();
+        } else if (token == JsonToken.BEGIN_OBJECT) {
+            streamObject(reader, context, false);
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            streamArray(reader, context);
+        } else {
+            reader.skipValue();
+        }
+    }
+
+    // same as streamValue, for an element which is already materialized;
+    private void visitValue(JsonElement element, Context context) throws Exception {
+        long id = seq++;
+        if (isMatch(context)) {
+            addCandidate(element, context, id);
+        } else if (!canMatch(context)) {
+            return;
+        }
+
+        visitChildren(element, context);
+    }
+
+    private void visitChildren(JsonElement element, Context context) throws Exception {
+        if (element.isJsonObject()) {
+            JsonObject jo = element.getAsJsonObject();
+            for (Map.Entry<String, JsonElement> entry : jo.entrySet()) {
+                segments.add(entry.getKey());
+                visitValue(entry.getValue(), onKey(context, entry.getKey()));
+                segments.remove(segments.size() - 1);
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray ja = element.getAsJsonArray();
+            // the length is known here, the ranges of the array steps are resolved once, not for every element;
+            BitSet[] absIndexes = absolute.getIndexes(context.absolute, ja.size());
+            BitSet[] relIndexes = (relative == null || isAbsolutePath) ? null : relative.getIndexes(context.relative, ja.size());
+            for (int j = 0; j < ja.size(); j++) {
+                segments.add(j);
+                visitValue(ja.get(j), onIndex(context, j, ja.size(), ja.get(j), absIndexes, relIndexes));
+                segments.remove(segments.size() - 1);
+            }
+        }
+    }
+
+    private boolean isMatch(Context context) {
+        return isAbsolutePath ? absolute.isMatch(context.absolute) : relative.isMatch(context.relative);
+    }
+
+    private boolean canMatch(Context context) {
+        return !isAbsolutePath || context.absolute.length > 0;
+    }
+
+    private boolean needsLength(Context context) {
+        if (absolute.needsLength(context.absolute) || (relative != null && relative.needsLength(context.relative))) {
+            return true;
+        }
+        return ignored.needsLength(context.ignored);
+    }
+
+    private boolean needsElement(Context context) {
+        if (absolute.needsElement(context.absolute) || (relative != null && relative.needsElement(context.relative))) {
+            return true;
+        }
+        return ignored.needsElement(context.ignored);
+    }
+
+    private Context onKey(Context parent, String key) {
+        int[] abs = absolute.onKey(parent.absolute, key);
+        int[] rel = (relative == null || isAbsolutePath) ? PathMatcher.NO_STATES : relative.onKey(parent.relative, key);
+
+        return newContext(parent, abs, rel, ignored.onKey(parent.ignored, key));
+    }
+
+    private Context onIndex(Context parent, int index, int length, JsonElement element) throws Exception {
+        int[] abs = absolute.onIndex(parent.absolute, index, length, element);
+        int[] rel = (relative == null || isAbsolutePath) ? PathMatcher.NO_STATES : relative.onIndex(parent.relative, index, length, element);
+
+        return newContext(parent, abs, rel, ignored.onIndex(parent.ignored, index, length, element));
+    }
+
+    // same as onIndex(Context, int, int, JsonElement), with the ranges resolved by PathMatcher.getIndexes();
+    private Context onIndex(Context parent, int index, int length, JsonElement element,
+                            BitSet[] absIndexes, BitSet[] relIndexes) throws Exception {
+        int[] abs = absolute.onIndex(parent.absolute, absIndexes, index, length, element, GsonNodeModel.INSTANCE, null);
+        int[] rel = (relIndexes == null)
+                ? PathMatcher.NO_STATES : relative.onIndex(parent.relative, relIndexes, index, length, element, GsonNodeModel.INSTANCE, null);
+
+        return newContext(parent, abs, rel, ignored.onIndex(parent.ignored, index, length, element));
+    }
+
+    private Context newContext(Context parent, int[] abs, int[] rel, IgnoredPathIndex.Node[] ignoredStates) {
+        BitSet ifAbsolute = parent.ignoredIfAbsolute;
+        BitSet ifRelative = parent.ignoredIfRelative;
+        for (IgnoredPathIndex.Node state : ignoredStates) {
+            ifAbsolute = or(ifAbsolute, state.getIfAbsolute());
+            ifRelative = or(ifRelative, state.getIfRelative());
+        }
+
+        return new Context(abs, rel, ignoredStates, ifAbsolute, ifRelative);
+    }
+
+    // copy on write, a BitSet is shared by all the descendants of a node;
+    private static BitSet or(BitSet bits, BitSet other) {
+        if (other == null) {
+            return bits;
+        }
+        if (bits == null) {
+            return other;
+        }
+
+        BitSet copy = (BitSet) other.clone();
+        copy.andNot(bits);
+        if (copy.isEmpty()) {
+            return bits;
+        }
+        copy.or(bits);
+        return copy;
+    }
+
+    private void addCandidate(JsonElement element, Context context, long id) {
+        StringBuilder level = new StringBuilder("$");
+        for (Object segment : segments) {
+            if (segment instanceof Integer) {
+                level.append('[').append(segment).append(']');
+            } else {
+                level.append('.').append(segment);
+            }
+        }
+
+        boolean isAbsoluteMatch = absolute.isMatch(context.absolute);
+        candidates.add(new Candidate(element, level.toString(), segments.size(), id, isAbsoluteMatch,
+                context.ignoredIfAbsolute, context.ignoredIfRelative));
+    }
+
+    private List<JsonElementWithPath> getResult() {
+        // as CompiledJsonPath does, ignored paths only apply to partial paths;
+        BitSet absolutePaths = ignored.getAbsolutePaths(rootKeys);
+        BitSet relativePaths = ignored.getRelativePaths(absolutePaths);
+
+        List<Candidate> matched = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (isAbsolutePath) {
+                if (candidate.isAbsoluteMatch) {
+                    matched.add(candidate);
+                }
+            } else if (!candidate.isIgnored(absolutePaths, relativePaths)) {
+                matched.add(candidate);
+            }
+        }
+
+        Collections.sort(matched, new Comparator<Candidate>() {
+            public int compare(Candidate a, Candidate b) {
+                if (a.depth != b.depth) {
+                    return a.depth - b.depth;
+                }
+                return Long.compare(a.seq, b.seq);
+            }
+        });
+
+        List<JsonElementWithPath> result = new ArrayList<>(matched.size());
+        for (Candidate candidate : matched) {
+            result.add(new JsonElementWithPath(candidate.element, candidate.level));
+        }
+
+        return result;
+    }
+
+    // matcher states of a node, and the ignored paths matching the node or one of its ancestors;
+    private static final class Context {
+        private final int[] absolute;
+        private final int[] relative;
+        private final IgnoredPathIndex.Node[] ignored;
+        private final BitSet ignoredIfAbsolute;
+        private final BitSet ignoredIfRelative;
+
+        Context(int[] absolute, int[] relative, IgnoredPathIndex.Node[] ignored, BitSet ignoredIfAbsolute, BitSet ignoredIfRelative) {
+            this.absolute = absolute;
+            this.relative = relative;
+            this.ignored = ignored;
+            this.ignoredIfAbsolute = ignoredIfAbsolute;
+            this.ignoredIfRelative = ignoredIfRelative;
+        }
+    }
+
+    private static final class Candidate {
+        private final JsonElement element;
+        private final String level;
+        private final int depth;
+        private final long seq;
+        private final boolean isAbsoluteMatch;
+        private final BitSet ignoredIfAbsolute;
+        private final BitSet ignoredIfRelative;
+
+        Candidate(JsonElement element, String level, int depth, long seq, boolean isAbsoluteMatch,
+                  BitSet ignoredIfAbsolute, BitSet ignoredIfRelative) {
+            this.element = element;
+            this.level = level;
+            this.depth = depth;
+            this.seq = seq;
+            this.isAbsoluteMatch = isAbsoluteMatch;
+            this.ignoredIfAbsolute = ignoredIfAbsolute;
+            this.ignoredIfRelative = ignoredIfRelative;
+        }
+
+        // absolutePaths / relativePaths: the ignored paths which turned out to be absolute / partial;
+        boolean isIgnored(BitSet absolutePaths, BitSet relativePaths) {
+            return (ignoredIfAbsolute != null && ignoredIfAbsolute.intersects(absolutePaths))
+                    || (ignoredIfRelative != null && ignoredIfRelative.intersects(relativePaths));
+        }
+    }
+}
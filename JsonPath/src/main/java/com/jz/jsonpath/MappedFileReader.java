@@ -0,0 +1,118 @@
+package com.jz.jsonpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a UTF-8 file through {@link FileChannel#map}, the bytes are decoded straight from the mapped pages into the
+ * buffer of the caller, no line, String or copy of the whole document is built.
+ * <p>
+ * The file is mapped by regions of at most 1GB, so files larger than 2GB are fine. A multi-byte character split by
+ * the end of a region is decoded from the next region, which starts at the first byte not decoded yet.
+ * As with any MappedByteBuffer, the pages stay mapped until the buffer is garbage collected, close() only closes the channel.
+ */
+final class MappedFileReader extends Reader {
+    static final long REGION_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long regionSize;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private ByteBuffer region;
+    // position of the region in the file;
+    private long regionStart;
+    private boolean flushed;
+    // second char of a surrogate pair read one char at a time, -1 if none;
+    private int pending = -1;
+
+    MappedFileReader(File file) throws IOException {
+        this(file, REGION_SIZE);
+    }
+
+    MappedFileReader(File file, long regionSize) throws IOException {
+        this.regionSize = regionSize;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            this.channel = raf.getChannel();
+            this.size = channel.size();
+            map(0);
+            skipByteOrderMark();
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private void map(long start) throws IOException {
+        regionStart = start;
+        region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, size - start));
+    }
+
+    private void skipByteOrderMark() {
+        if (region.remaining() >= 3 && (region.get(0) & 0xFF) == 0xEF && (region.get(1) & 0xFF) == 0xBB
+                && (region.get(2) & 0xFF) == 0xBF) {
+            region.position(3);
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (pending >= 0) {
+            cbuf[off] = (char) pending;
+            pending = -1;
+            return 1;
+        }
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.position() == off) {
+            if (flushed) {
+                return -1;
+            }
+
+            boolean last = (regionStart + region.limit() == size);
+            CoderResult result = decoder.decode(region, out, last);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (out.position() > off) {
+                break;
+            }
+            if (result.isOverflow()) { // a surrogate pair does not fit in len == 1
+                CharBuffer pair = CharBuffer.allocate(2);
+                decoder.decode(region, pair, last);
+                cbuf[off] = pair.get(0);
+                pending = pair.get(1);
+                return 1;
+            }
+
+            if (!last) {
+                map(regionStart + region.position()); // the undecoded tail of the region, if any, is mapped again
+            } else {
+                decoder.flush(out);
+                flushed = true;
+            }
+        }
+        return out.position() - off;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
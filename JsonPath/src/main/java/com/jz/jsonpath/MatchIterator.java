@@ -0,0 +1,211 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.*;
+
+/**
+ * The BFS of a partial path, run one step at a time: next() resumes the traversal where the previous match was
+ * found and stops at the following one, so a caller who stops iterating also stops the traversal.
+ * <p>
+ * A match is tested against the ignored paths when it is found, the results are the same and in the same order as
+ * {@link CompiledJsonPath#evaluate(JsonObject)}. Filters declare Exception, which is rethrown as an
+ * IllegalStateException since Iterator methods cannot throw it.
+ *
+ * @param <N> type of the nodes, see {@link JsonNodeModel}
+ * @param <R> type of the results
+ */
+abstract class MatchIterator<N, R> implements Iterator<R> {
+    private final N source;
+    private final JsonNodeModel<N> model;
+    private final PathMatcher matcher;
+    private final IgnoredPathIndex ignored;
+    private final BitSet absolutePaths;
+    private final BitSet relativePaths;
+    private final QueryStats stats;
+
+    private final Queue<Visit<N>> queue = new ArrayDeque<>();
+    // the node whose children are being visited, along with the position in its members or elements;
+    private Visit<N> parent;
+    private Iterator<Map.Entry<String, N>> members;
+    private N elements;
+    private int length;
+    private int index;
+    private BitSet[] indexes;
+
+    private R next;
+
+    MatchIterator(N source, JsonNodeModel<N> model, PathMatcher matcher, IgnoredPathIndex ignored, QueryStats stats) {
+        this.source = source;
+        this.model = model;
+        this.matcher = matcher;
+        this.ignored = ignored;
+        this.stats = stats;
+        long start = System.nanoTime();
+        this.absolutePaths = ignored.isEmpty() ? null : ignored.getAbsolutePaths(source, model);
+        if (stats != null) {
+            stats.addTime(QueryStats.Phase.INDEX, System.nanoTime() - start);
+        }
+        this.relativePaths = ignored.isEmpty() ? null : ignored.getRelativePaths(absolutePaths);
+        this.queue.offer(new Visit<>(source, PathNode.ROOT, matcher.start()));
+    }
+
+    static MatchIterator<JsonElement, JsonElementWithPath> of(JsonObject source, PathMatcher matcher, IgnoredPathIndex ignored) {
+        return of(source, matcher, ignored, null);
+    }
+
+    /**
+     * @param stats filled in while the BFS advances, could be null;
+     */
+    static MatchIterator<JsonElement, JsonElementWithPath> of(JsonObject source, PathMatcher matcher, IgnoredPathIndex ignored, QueryStats stats) {
+        return new MatchIterator<JsonElement, JsonElementWithPath>(source, GsonNodeModel.INSTANCE, matcher, ignored, stats) {
+            @Override
+            JsonElementWithPath result(JsonElement value, PathNode node) {
+                return new JsonElementWithPath(value, node);
+            }
+        };
+    }
+
+    static <N> MatchIterator<N, NodeWithPath<N>> of(N source, JsonNodeModel<N> model, PathMatcher matcher, IgnoredPathIndex ignored) {
+        return new MatchIterator<N, NodeWithPath<N>>(source, model, matcher, ignored, null) {
+            @Override
+            NodeWithPath<N> result(N value, PathNode node) {
+                return new NodeWithPath<>(value, node);
+            }
+        };
+    }
+
+    abstract R result(N value, PathNode node);
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = advance();
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to evaluate the JsonPath filters.", e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public R next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        R result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Same as next(), for callers which handle the Exception of the filters themselves.
+     *
+     * @return the next result, null when the BFS is over
+     */
+    R poll() throws Exception {
+        if (next != null) {
+            R result = next;
+            next = null;
+            return result;
+        }
+        return advance();
+    }
+
+    // visits children until one of them is a match which is not ignored, null when the BFS is over;
+    private R advance() throws Exception {
+        while (true) {
+            N value;
+            int[] states;
+            String key = null;
+            int j = -1;
+            if (members != null && members.hasNext()) {
+                Map.Entry<String, N> entry = members.next();
+                if (stats != null) {
+                    stats.onNode(parent.node.getDepth() + 1);
+                }
+                states = matcher.onKey(parent.states, entry.getKey());
+                if (!matcher.canMatch(states)) {
+                    continue;
+                }
+                value = entry.getValue();
+                key = entry.getKey();
+            } else if (elements != null && index < length) {
+                j = index++;
+                value = model.get(elements, j);
+                if (stats != null) {
+                    stats.onNode(parent.node.getDepth() + 1);
+                }
+                states = (indexes != null) ? matcher.onIndex(parent.states, indexes, j, length, value, model, stats) : PathMatcher.NO_STATES;
+            } else {
+                parent = queue.poll();
+                if (parent == null) {
+                    return null;
+                }
+                members = model.isObject(parent.value) ? model.members(parent.value).iterator() : null;
+                elements = model.isArray(parent.value) ? parent.value : null;
+                length = (elements != null) ? model.size(elements) : 0;
+                // the ranges of the array steps are resolved against the length once, not for every element;
+                indexes = (elements != null && parent.states.length > 0) ? matcher.getIndexes(parent.states, length) : null;
+                index = 0;
+                continue;
+            }
+
+            // a primitive which is not a match has nothing left to visit, no path or queue entry is built for it;
+            boolean isContainer = model.isObject(value) || model.isArray(value);
+            boolean isMatch = matcher.isMatch(states);
+            if (!isContainer && !isMatch) {
+                continue;
+            }
+
+            PathNode node = (key != null) ? parent.node.child(key) : parent.node.child(j);
+            if (stats != null) {
+                stats.onPathBuilt();
+            }
+            if (isContainer) {
+                queue.offer(new Visit<>(value, node, states));
+            }
+            if (isMatch && !isIgnored(node)) {
+                return result(value, node);
+            }
+        }
+    }
+
+    private boolean isIgnored(PathNode node) throws Exception {
+        if (absolutePaths == null) {
+            return false;
+        }
+        if (stats == null) {
+            return ignored.isIgnored(source, model, node, absolutePaths, relativePaths);
+        }
+
+        long start = System.nanoTime();
+        try {
+            stats.onIgnoredPathCheck();
+            return ignored.isIgnored(source, model, node, absolutePaths, relativePaths);
+        } finally {
+            stats.addTime(QueryStats.Phase.IGNORE, System.nanoTime() - start);
+        }
+    }
+
+    // a node waiting in the BFS queue, along with the states of the PathMatcher;
+    private static final class Visit<N> {
+        private final N value;
+        private final PathNode node;
+        private final int[] states;
+
+        Visit(N value, PathNode node, int[] states) {
+            this.value = value;
+            this.node = node;
+            this.states = states;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.jz.jsonpath;
+
+/**
+ * A node of any {@link JsonNodeModel} found by a path, the counterpart of {@link JsonElementWithPath}.
+ *
+ * @param <N> type of the nodes of the tree
+ */
+public final class NodeWithPath<N> {
+    private final N node;
+    // null if the level is built from path;
+    private final String level;
+    private final PathNode path;
+
+    NodeWithPath(N node, PathNode path) {
+        this.node = node;
+        this.level = null;
+        this.path = path;
+    }
+
+    NodeWithPath(N node, String level) {
+        this.node = node;
+        this.level = level;
+        PathNode parsed = PathNode.parse(level);
+        this.path = (parsed != null) ? parsed : PathNode.ROOT;
+    }
+
+    public N getNode() {
+        return node;
+    }
+
+    /**
+     * @return the path of the node, e.g. "$.modules.RETURNS.maxView.value[3]", same as {@link JsonElementWithPath#getLevel()}
+     */
+    public String getLevel() {
+        return (level != null) ? level : path.toString();
+    }
+
+    /**
+     * @see JsonElementWithPath#getDepth()
+     */
+    public int getDepth() {
+        return path.getDepth();
+    }
+
+    /**
+     * @see JsonElementWithPath#getKey(int)
+     */
+    public String getKey(int i) {
+        return path.getAncestor(i + 1).getKey();
+    }
+
+    /**
+     * @see JsonElementWithPath#getIndex(int)
+     */
+    public int getIndex(int i) {
+        return path.getAncestor(i + 1).getIndex();
+    }
+
+    @Override
+    public String toString() {
+        return getLevel() + " : " + node;
+    }
+}
@@ -0,0 +1,139 @@
+package com.jz.jsonpath;
+
+import com.google.common.primitives.Longs;
+import com.google.gson.JsonParser;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * The right operand of a comparison, parsed once when the condition is created: a number, a quoted string,
+ * true or false. Values are compared by their type, numbers are read from the node as the parser holds them,
+ * no value is turned into Json to be compared.
+ * <p>
+ * Integral numbers which fit in a long are compared as long, other numbers as BigDecimal, so negatives,
+ * longs and exponents like 1.5e3 compare exactly.
+ */
+final class Operand {
+    private enum Type {NUMBER, STRING, BOOLEAN, OTHER}
+
+    private final Type type;
+    private final BigDecimal decimal;
+    // the number as a long if it is integral and fits, otherwise null;
+    private final Long integral;
+    private final String string;
+    private final boolean bool;
+
+    private Operand(Type type, BigDecimal decimal, String string, boolean bool) {
+        this.type = type;
+        this.decimal = decimal;
+        this.integral = (decimal == null) ? null : toLong(decimal);
+        this.string = string;
+        this.bool = bool;
+    }
+
+    /**
+     * @param right right side of a condition, e.g. 12.99, "Refund", 'fiction' or true
+     */
+    static Operand parse(String right) {
+        String text = right.trim();
+        if (text.length() >= 2 && (text.charAt(0) == '"' || text.charAt(0) == '\'')
+                && text.charAt(text.length() - 1) == text.charAt(0)) {
+            try {
+                return new Operand(Type.STRING, null, JsonParser.parseString(text).getAsString(), false);
+            } catch (RuntimeException e) { // e.g. a broken escape, compared as text
+                return new Operand(Type.OTHER, null, null, false);
+            }
+        }
+        if (text.equals("true") || text.equals("false")) {
+            return new Operand(Type.BOOLEAN, null, null, Boolean.parseBoolean(text));
+        }
+
+        BigDecimal decimal = toDecimal(text);
+        return (decimal != null) ? new Operand(Type.NUMBER, decimal, null, false) : new Operand(Type.OTHER, null, null, false);
+    }
+
+    /**
+     * @return null if the operand is not a number, a string or a boolean, the value is then compared as Json
+     */
+    <N> Boolean isEqual(N value, JsonNodeModel<N> model) {
+        switch (type) {
+            case NUMBER:
+                return model.isNumber(value) && compare(model.asNumber(value)) == 0;
+            case STRING:
+                return model.isString(value) && model.asString(value).equals(string);
+            case BOOLEAN:
+                return model.isBoolean(value) && model.asBoolean(value) == bool;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A number is compared with a number or a numeric string, a string with a string.
+     *
+     * @return the sign of value - operand, null if they cannot be compared
+     */
+    <N> Integer compareTo(N value, JsonNodeModel<N> model) {
+        if (type == Type.NUMBER) {
+            if (model.isNumber(value)) {
+                return compare(model.asNumber(value));
+            }
+            if (model.isString(value)) {
+                BigDecimal other = toDecimal(model.asString(value).trim());
+                return (other != null) ? Integer.valueOf(other.compareTo(decimal)) : null;
+            }
+        } else if (type == Type.STRING && model.isString(value)) {
+            return Integer.signum(model.asString(value).compareTo(string));
+        }
+        return null;
+    }
+
+    private int compare(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            return (integral != null) ? Long.compare(number.longValue(), integral) : BigDecimal.valueOf(number.longValue()).compareTo(decimal);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            return (Double.isNaN(d) || Double.isInfinite(d)) ? Double.compare(d, decimal.doubleValue()) : BigDecimal.valueOf(d).compareTo(decimal);
+        }
+        if (number instanceof BigDecimal) {
+            return ((BigDecimal) number).compareTo(decimal);
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number).compareTo(decimal);
+        }
+
+        // e.g. Gson's LazilyParsedNumber, which keeps the text of the document;
+        String text = number.toString();
+        Long l = (integral != null) ? Longs.tryParse(text) : null;
+        if (l != null) {
+            return Long.compare(l, integral);
+        }
+        BigDecimal other = toDecimal(text);
+        return (other != null) ? other.compareTo(decimal) : Double.compare(number.doubleValue(), decimal.doubleValue());
+    }
+
+    private static BigDecimal toDecimal(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        char c = text.charAt(0);
+        if (c != '-' && c != '+' && c != '.' && (c < '0' || c > '9')) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long toLong(BigDecimal decimal) {
+        try {
+            return decimal.longValueExact();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
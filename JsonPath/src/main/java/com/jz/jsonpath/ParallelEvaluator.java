@@ -0,0 +1,207 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Matches a partial path with fork/join tasks, for very large documents.
+ * <p>
+ * A subtree is matched depth first and its matches are put in one bucket per depth. The BFS returns the matches
+ * of a depth in the order of their parents, i.e. all the matches under the first child before the ones under the
+ * second child, so appending the buckets of sibling subtrees depth by depth gives exactly the order of the BFS.
+ * <p>
+ * The members or elements of a container wider than the threshold are split in halves until the ranges are not
+ * wider than the threshold, each half is a task. A document without such a container stays in one task. The members
+ * of a split JsonObject are listed, and the ranges of a split JsonArray resolved, once for all its tasks.
+ */
+final class ParallelEvaluator {
+    private final PathMatcher matcher;
+    private final int threshold;
+
+    ParallelEvaluator(PathMatcher matcher, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold should be positive : " + threshold);
+        }
+
+        this.matcher = matcher;
+        this.threshold = threshold;
+    }
+
+    List<JsonElementWithPath> evaluate(JsonObject source, ForkJoinPool pool) throws Exception {
+        Buckets buckets;
+        try {
+            buckets = pool.invoke(newTask(source, PathNode.ROOT, matcher.start(), 0));
+        } catch (RuntimeException e) {
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof FilterException) {
+                    throw (Exception) t.getCause();
+                }
+            }
+            throw e;
+        }
+
+        List<JsonElementWithPath> result = new ArrayList<>();
+        for (List<JsonElementWithPath> bucket : buckets.depths) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    private static int width(JsonElement je) {
+        if (je.isJsonArray()) {
+            return je.getAsJsonArray().size();
+        }
+        return je.isJsonObject() ? je.getAsJsonObject().size() : 0;
+    }
+
+    // a task for all the children of a container, the tasks split from it share its members or indexes;
+    private Task newTask(JsonElement container, PathNode node, int[] states, int depth) {
+        if (container.isJsonArray()) {
+            int length = container.getAsJsonArray().size();
+            return new Task(container, node, states, depth, null, matcher.getIndexes(states, length), 0, length);
+        }
+        List<Map.Entry<String, JsonElement>> members = new ArrayList<>(container.getAsJsonObject().entrySet());
+        return new Task(container, node, states, depth, members, null, 0, members.size());
+    }
+
+    private void visitElements(JsonArray ja, PathNode node, int[] states, BitSet[] indexes, int depth, int from, int to, Parts parts) throws Exception {
+        for (int j = from; j < to; j++) {
+            JsonElement element = ja.get(j);
+            visit(element, node.child(j), matcher.onIndex(states, indexes, j, ja.size(), element, GsonNodeModel.INSTANCE, null), depth + 1, parts);
+        }
+    }
+
+    private void visitMember(Map.Entry<String, JsonElement> entry, PathNode node, int[] states, int depth, Parts parts) throws Exception {
+        visit(entry.getValue(), node.child(entry.getKey()), matcher.onKey(states, entry.getKey()), depth + 1, parts);
+    }
+
+    private void visit(JsonElement je, PathNode node, int[] states, int depth, Parts parts) throws Exception {
+        if (!matcher.canMatch(states)) {
+            return;
+        }
+        if (matcher.isMatch(states)) {
+            parts.current.add(depth, new JsonElementWithPath(je, node));
+        }
+
+        int width = width(je);
+        if (width > threshold) {
+            parts.fork(newTask(je, node, states, depth));
+        } else if (je.isJsonArray()) {
+            JsonArray ja = je.getAsJsonArray();
+            visitElements(ja, node, states, matcher.getIndexes(states, width), depth, 0, width, parts);
+        } else if (width > 0) {
+            for (Map.Entry<String, JsonElement> entry : je.getAsJsonObject().entrySet()) {
+                visitMember(entry, node, states, depth, parts);
+            }
+        }
+    }
+
+    // the children [from, to) of a container, along with their subtrees;
+    private final class Task extends RecursiveTask<Buckets> {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonElement container;
+        private final PathNode node;
+        private final int[] states;
+        private final int depth;
+        // the members of a JsonObject, listed once for the container;
+        private final List<Map.Entry<String, JsonElement>> members;
+        // the indexes of a JsonArray selected by the ranges, resolved once for the container;
+        private final BitSet[] indexes;
+        private final int from;
+        private final int to;
+
+        Task(JsonElement container, PathNode node, int[] states, int depth,
+             List<Map.Entry<String, JsonElement>> members, BitSet[] indexes, int from, int to) {
+            this.container = container;
+            this.node = node;
+            this.states = states;
+            this.depth = depth;
+            this.members = members;
+            this.indexes = indexes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Buckets compute() {
+            if (to - from > threshold) {
+                int mid = (from + to) >>> 1;
+                Task left = new Task(container, node, states, depth, members, indexes, from, mid);
+                Task right = new Task(container, node, states, depth, members, indexes, mid, to);
+                left.fork();
+                Buckets tail = right.compute();
+                return left.join().append(tail);
+            }
+
+            Parts parts = new Parts();
+            try {
+                if (members == null) {
+                    visitElements(container.getAsJsonArray(), node, states, indexes, depth, from, to, parts);
+                } else {
+                    for (int i = from; i < to; i++) {
+                        visitMember(members.get(i), node, states, depth, parts);
+                    }
+                }
+            } catch (Exception e) {
+                throw new FilterException(e);
+            }
+            return parts.join();
+        }
+    }
+
+    // the buckets of a range, in order: matched in this task, or by the tasks it forked;
+    private static final class Parts {
+        private final List<Object> parts = new ArrayList<>();
+        private Buckets current = new Buckets();
+
+        void fork(Task task) {
+            parts.add(current);
+            parts.add(task.fork());
+            current = new Buckets();
+        }
+
+        Buckets join() {
+            Buckets result = new Buckets();
+            for (Object part : parts) {
+                result.append((part instanceof Task) ? ((Task) part).join() : (Buckets) part);
+            }
+            return result.append(current);
+        }
+    }
+
+    // matches by depth, each depth in BFS order;
+    private static final class Buckets {
+        private final List<List<JsonElementWithPath>> depths = new ArrayList<>();
+
+        void add(int depth, JsonElementWithPath je) {
+            while (depths.size() <= depth) {
+                depths.add(new ArrayList<JsonElementWithPath>());
+            }
+            depths.get(depth).add(je);
+        }
+
+        Buckets append(Buckets other) {
+            for (int depth = 0; depth < other.depths.size(); depth++) {
+                for (JsonElementWithPath je : other.depths.get(depth)) {
+                    add(depth, je);
+                }
+            }
+            return this;
+        }
+    }
+
+    // carries the Exception of a filter out of compute();
+    private static final class FilterException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        FilterException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.jz.jsonpath;
+
+import com.google.gson.JsonElement;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Matches a JsonPath segment by segment while the document is traversed, instead of building a regex
+ * from the path and running it against every visited level.
+ * <p>
+ * "RETURNS.maxView.value[1,3,4].label" is split into the tokens [RETURNS, maxView, value, [1,3,4], label],
+ * a state is the number of tokens matched so far. Every queued node carries its states, a child gets
+ * the states of its parent advanced by its own key or index. For a partial path every key may start
+ * a new match, which is what the regex "(.*)\.RETURNS..." used to do.
+ */
+final class PathMatcher {
+    static final int[] NO_STATES = new int[0];
+    private static final int[] START = new int[]{0};
+    private static final int[] FIRST = new int[]{1};
+
+    private final PathToken[] tokens;
+    private final boolean isAbsolutePath;
+    private final boolean ignoreCase;
+
+    PathMatcher(List<PathToken> tokens, boolean isAbsolutePath, boolean ignoreCase) {
+        this.tokens = tokens.toArray(new PathToken[tokens.size()]);
+        this.isAbsolutePath = isAbsolutePath;
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * @return the states of the root "$"
+     */
+    int[] start() {
+        return isAbsolutePath ? START : NO_STATES;
+    }
+
+    /**
+     * @param states states of a JsonObject
+     * @param key    key of one of its members
+     * @return states of the member
+     */
+    int[] onKey(int[] states, String key) {
+        if (states.length == 0) {
+            return canStartWith(key) ? FIRST : NO_STATES;
+        }
+
+        int[] next = new int[states.length + 1];
+        int size = 0;
+        for (int state : states) {
+            if (state < tokens.length && isMatchingKey(tokens[state], key)) {
+                next[size++] = state + 1;
+            }
+        }
+        if (canStartWith(key)) {
+            next[size++] = 1;
+        }
+
+        return trim(next, size);
+    }
+
+    // a partial path starts a new match at every key equal to its first token;
+    private boolean canStartWith(String key) {
+        return !isAbsolutePath && tokens.length > 0 && isMatchingKey(tokens[0], key);
+    }
+
+    /**
+     * @return the first key of a partial path, or null if the path is absolute or starts with an array step
+     */
+    String getFirstKey() {
+        return (isAbsolutePath || tokens.length == 0) ? null : tokens[0].getKey();
+    }
+
+    boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * @param states states of a JsonArray
+     * @return states of its elements
+     */
+    int[] onIndex(int[] states) {
+        int[] next = new int[states.length];
+        int size = 0;
+        for (int state : states) {
+            if (state < tokens.length && tokens[state].isIndex()) {
+                next[size++] = state + 1;
+            }
+        }
+
+        return trim(next, size);
+    }
+
+    /**
+     * Same as {@link #onIndex(int[])}, but the element must also pass the filter of the array step.
+     *
+     * @param index   index of the element
+     * @param length  length of the JsonArray, only read if {@link #needsLength(int[])}
+     * @param element the element, only read if {@link #needsElement(int[])}
+     */
+    int[] onIndex(int[] states, int index, int length, JsonElement element) throws Exception {
+        return onIndex(states, index, length, element, GsonNodeModel.INSTANCE);
+    }
+
+    /**
+     * Same as {@link #onIndex(int[], int, int, JsonElement)}, for an element of any {@link JsonNodeModel}.
+     */
+    <N> int[] onIndex(int[] states, int index, int length, N element, JsonNodeModel<N> model) throws Exception {
+        return onIndex(states, index, length, element, model, null);
+    }
+
+    /**
+     * @param stats counts the filter evaluations, could be null;
+     */
+    <N> int[] onIndex(int[] states, int index, int length, N element, JsonNodeModel<N> model, QueryStats stats) throws Exception {
+        if (states.length == 0) {
+            return NO_STATES;
+        }
+
+        int[] next = new int[states.length];
+        int size = 0;
+        for (int state : states) {
+            if (state < tokens.length && tokens[state].isIndex() && isMatchingFilter(tokens[state], index, length, element, model, stats)) {
+                next[size++] = state + 1;
+            }
+        }
+
+        return trim(next, size);
+    }
+
+    /**
+     * Resolves the ranges of the array steps of the states against a JsonArray of length, once for all its elements,
+     * instead of testing every range for every element: negative indexes count from the tail of this array.
+     *
+     * @return per state, the selected indexes; null for a filter step or a state which is not at an array step
+     */
+    BitSet[] getIndexes(int[] states, int length) {
+        BitSet[] indexes = new BitSet[states.length];
+        for (int i = 0; i < states.length; i++) {
+            int state = states[i];
+            if (state < tokens.length && tokens[state].isIndex() && !tokens[state].hasConditions()) {
+                indexes[i] = Range.getIndexes(tokens[state].getRanges(), length);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Same as {@link #onIndex(int[], int, int, Object, JsonNodeModel, QueryStats)}, with the ranges resolved by
+     * {@link #getIndexes(int[], int)}.
+     */
+    <N> int[] onIndex(int[] states, BitSet[] indexes, int index, int length, N element, JsonNodeModel<N> model, QueryStats stats) throws Exception {
+        if (states.length == 0) {
+            return NO_STATES;
+        }
+
+        int[] next = new int[states.length];
+        int size = 0;
+        for (int i = 0; i < states.length; i++) {
+            int state = states[i];
+            if (state < tokens.length && tokens[state].isIndex()
+                    && ((indexes[i] != null) ? indexes[i].get(index) : isMatchingFilter(tokens[state], index, length, element, model, stats))) {
+                next[size++] = state + 1;
+            }
+        }
+
+        return trim(next, size);
+    }
+
+    /**
+     * @return true if the length of the JsonArray is needed to filter its elements, e.g. [-2] or [-3:-1]
+     */
+    boolean needsLength(int[] states) {
+        for (int state : states) {
+            if (state < tokens.length && tokens[state].isIndex()) {
+                for (Range range : tokens[state].getRanges()) {
+                    if (range.getStart() < 0 && range.getEnd() < 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the elements of the JsonArray are needed to filter them, e.g. [?(@.text == "a")]
+     */
+    boolean needsElement(int[] states) {
+        for (int state : states) {
+            if (state < tokens.length && tokens[state].hasConditions()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isMatchingFilter(PathToken token, int index, int length, JsonElement element) throws Exception {
+        return isMatchingFilter(token, index, length, element, GsonNodeModel.INSTANCE);
+    }
+
+    static <N> boolean isMatchingFilter(PathToken token, int index, int length, N element, JsonNodeModel<N> model) throws Exception {
+        return isMatchingFilter(token, index, length, element, model, null);
+    }
+
+    static <N> boolean isMatchingFilter(PathToken token, int index, int length, N element, JsonNodeModel<N> model, QueryStats stats) throws Exception {
+        if (token.hasConditions()) {
+            return element != null && model.isObject(element) && token.getFilter().isMatching(element, model, stats);
+        }
+        return Range.contains(token.getRanges(), index, length);
+    }
+
+    boolean isMatch(int[] states) {
+        for (int state : states) {
+            if (state == tokens.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return false if neither the node nor any of its children could match the path;
+     */
+    boolean canMatch(int[] states) {
+        return !isAbsolutePath || states.length > 0;
+    }
+
+    private boolean isMatchingKey(PathToken token, String key) {
+        if (token.isIndex()) {
+            return false;
+        }
+        return ignoreCase ? token.getKey().equalsIgnoreCase(key) : token.getKey().equals(key);
+    }
+
+    private static int[] trim(int[] states, int size) {
+        if (size == 0) {
+            return NO_STATES;
+        }
+        return (size == states.length) ? states : Arrays.copyOf(states, size);
+    }
+}
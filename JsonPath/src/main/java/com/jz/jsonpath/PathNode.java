@@ -0,0 +1,121 @@
+package com.jz.jsonpath;
+
+/**
+ * Path of a visited node, as a link to the path of its parent plus its own key or index.
+ * <p>
+ * A child costs one small object instead of a copy of "$.modules.RETURNS.maxView.value[3]...",
+ * the path string is only built by {@link #toString()}, i.e. for the nodes which end up in the result.
+ */
+final class PathNode {
+    static final PathNode ROOT = new PathNode(null, null, -1, 0);
+
+    private final PathNode parent;
+    private final String key;
+    private final int index;
+    private final int depth;
+
+    private PathNode(PathNode parent, String key, int index, int depth) {
+        this.parent = parent;
+        this.key = key;
+        this.index = index;
+        this.depth = depth;
+    }
+
+    PathNode child(String key) {
+        return new PathNode(this, key, -1, depth + 1);
+    }
+
+    PathNode child(int index) {
+        return new PathNode(this, null, index, depth + 1);
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    boolean isIndex() {
+        return key == null;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @param depth 1 for the first step below "$", up to {@link #getDepth()}
+     * @return the node of that step on the path to this node
+     */
+    PathNode getAncestor(int depth) {
+        if (depth < 1 || depth > this.depth) {
+            throw new IndexOutOfBoundsException("depth: " + depth + ", path depth: " + this.depth);
+        }
+
+        PathNode node = this;
+        while (node.depth > depth) {
+            node = node.parent;
+        }
+        return node;
+    }
+
+    /**
+     * @return the nodes from the first step below "$" down to this node
+     */
+    PathNode[] getNodes() {
+        PathNode[] nodes = new PathNode[depth];
+        for (PathNode node = this; node.parent != null; node = node.parent) {
+            nodes[node.depth - 1] = node;
+        }
+        return nodes;
+    }
+
+    /**
+     * @param level a level of {@link JsonElementWithPath}, e.g. "$.modules.RETURNS.maxView.value[3]"
+     * @return the node of the level, null if it is not a valid level
+     */
+    static PathNode parse(String level) {
+        PathNode node = ROOT;
+        try {
+            for (PathToken token : PathToken.tokenize(level)) {
+                if (!token.isIndex()) {
+                    node = node.child(token.getKey());
+                } else if (token.getRanges().size() == 1 && token.getRanges().get(0).getStart() >= 0
+                        && token.getRanges().get(0).getStart() == token.getRanges().get(0).getEnd()) {
+                    node = node.child(token.getRanges().get(0).getStart());
+                } else {
+                    return null;
+                }
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * @return the path in the same format as {@link JsonElementWithPath#getLevel()}, e.g. "$.modules.RETURNS.maxView.value[3]"
+     */
+    @Override
+    public String toString() {
+        return toString(false);
+    }
+
+    /**
+     * @param lowerCase if true, keys are lowercased one by one while the path is built,
+     *                  instead of lowercasing the whole path afterwards;
+     */
+    String toString(boolean lowerCase) {
+        StringBuilder sb = new StringBuilder("$");
+        for (PathNode node : getNodes()) {
+            if (node.key != null) {
+                sb.append('.').append(lowerCase ? node.key.toLowerCase() : node.key);
+            } else {
+                sb.append('[').append(node.index).append(']');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.jz.jsonpath;
+
+import java.util.*;
+
+/**
+ * One step of a JsonPath, either a key like "maxView" or an array step like "[1,3,4]" / "[?(@.text == \"a\")]".
+ * The content of [] is parsed into ranges or conditions once, when the path is tokenized.
+ */
+final class PathToken {
+    private static final PathToken ANY_INDEX = new PathToken(null, "*",
+            Collections.<Range>singletonList(new Range(0, Integer.MAX_VALUE)), Collections.<Condition>emptyList());
+
+    private final String key;
+    // content of [] of an array step;
+    private final String text;
+    private final List<Range> ranges;
+    private final List<Condition> conditions;
+    // conditions grouped by precedence, null without conditions;
+    private final FilterExpression filter;
+
+    private PathToken(String key, String text, List<Range> ranges, List<Condition> conditions) {
+        this.key = key;
+        this.text = text;
+        this.ranges = ranges;
+        this.conditions = conditions;
+        this.filter = conditions.isEmpty() ? null : FilterExpression.of(conditions);
+    }
+
+    static PathToken key(String key) {
+        return new PathToken(key, null, Collections.<Range>emptyList(), Collections.<Condition>emptyList());
+    }
+
+    /**
+     * @param r String in [], sample : "1,3,4", "-3:-1", "*", "?(@.text == \"Refund\" || @.text == \"Return policy\")"
+     */
+    static PathToken index(String r, String path) throws Exception {
+        r = r.trim();
+        if (r.contains("@")) {
+            List<Condition> conditions = Condition.getConditions(r);
+            if (conditions == null || conditions.isEmpty()) {
+                return ANY_INDEX;
+            }
+            return new PathToken(null, r, Collections.<Range>emptyList(), Collections.unmodifiableList(conditions));
+        } else if (r.matches("(.*)([,:])(.*)") || r.contains("last()") || r.contains("first()") || r.contains("*") || r.matches("\\s{0,}(-{0,}\\d+)\\s{0,}")) {
+            List<Range> ranges = Range.mergeRanges(new ArrayList<>(new HashSet<>(Range.getRange(r))));
+            return new PathToken(null, r, Collections.unmodifiableList(ranges), Collections.<Condition>emptyList());
+        }
+
+        throw new Exception("Invalid JsonPath : " + path);
+    }
+
+    // [*]
+    static PathToken anyIndex() {
+        return ANY_INDEX;
+    }
+
+    boolean isIndex() {
+        return key == null;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    List<Range> getRanges() {
+        return ranges;
+    }
+
+    FilterExpression getFilter() {
+        return filter;
+    }
+
+    boolean hasConditions() {
+        return !conditions.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return isIndex() ? "[" + text + "]" : key;
+    }
+
+    /**
+     * @param path sample path : "$.modules.RETURNS.maxView.value[?(@.text == \"a.b\")].label"
+     * @return [modules, RETURNS, maxView, value, [?(@.text == "a.b")], label]
+     */
+    static List<PathToken> tokenize(String path) throws Exception {
+        List<PathToken> tokens = new ArrayList<>();
+        String org = path;
+        path = path.trim();
+        if (path.startsWith("$")) {
+            path = path.substring(1);
+        }
+
+        StringBuilder key = new StringBuilder();
+        int i = 0;
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                addKey(tokens, key);
+                i++;
+            } else if (c == '[') {
+                addKey(tokens, key);
+                int close = indexOfClosingBracket(path, i);
+                tokens.add(index(path.substring(i + 1, close), org));
+                i = close + 1;
+            } else {
+                key.append(c);
+                i++;
+            }
+        }
+        addKey(tokens, key);
+
+        return tokens;
+    }
+
+    private static void addKey(List<PathToken> tokens, StringBuilder key) {
+        if (key.length() > 0) {
+            tokens.add(key(key.toString()));
+            key.setLength(0);
+        }
+    }
+
+    // quotes are honored, so "]" in a filter like [?(@.text == "]")] does not close the bracket;
+    static int indexOfClosingBracket(String path, int open) {
+        char quote = 0;
+        for (int i = open + 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid JsonPath, missing ']' : " + path);
+    }
+}
@@ -0,0 +1,138 @@
+package com.jz.jsonpath;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in statistics of one query, filled in by {@link JsonPath#get(String, String, boolean, String[], QueryStats)}
+ * or {@link CompiledJsonPath#evaluate(com.google.gson.JsonObject, QueryStats)}, to find out why a path is slow:
+ * <pre>
+ * QueryStats stats = new QueryStats();
+ * List&lt;JsonElementWithPath&gt; res = JsonPath.get(json, path, true, ignoredPaths, stats);
+ * metrics.record(stats.toMap());
+ * </pre>
+ * The counters add up if the same instance is passed to several queries, use one instance per query to report them
+ * one by one. Not thread-safe.
+ */
+public final class QueryStats {
+
+    public enum Phase {
+        // Json text to JsonObject;
+        PARSE,
+        // tokens, filters and the index of the ignored paths, i.e. CompiledJsonPath.compile();
+        COMPILE,
+        // the ignored paths resolved against the top-level keys of the document;
+        INDEX,
+        // the BFS or the walk of an absolute path, filters included, ignored path checks excluded;
+        TRAVERSAL,
+        // the matches tested against the ignored paths;
+        IGNORE
+    }
+
+    private long nodesVisited;
+    private int levels;
+    private long pathsBuilt;
+    private long regexMatches;
+    private long filterEvaluations;
+    private long ignoredPathChecks;
+    private final Map<Phase, Long> nanos = new EnumMap<>(Phase.class);
+
+    /**
+     * @return the members and elements read by the traversal
+     */
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * @return the depth of the deepest level reached by the traversal
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * @return the paths built for the nodes queued by the BFS or selected by the walk, each one a link to the path of
+     * its parent; the strings like "$.modules.RETURNS.maxView.value[3]" are only built by {@link JsonElementWithPath#getLevel()}
+     */
+    public long getPathsBuilt() {
+        return pathsBuilt;
+    }
+
+    /**
+     * @return the =~ conditions evaluated
+     */
+    public long getRegexMatches() {
+        return regexMatches;
+    }
+
+    /**
+     * @return the elements tested against a filter like [?(@.text == "Refund")]
+     */
+    public long getFilterEvaluations() {
+        return filterEvaluations;
+    }
+
+    /**
+     * @return the matches tested against the ignored paths
+     */
+    public long getIgnoredPathChecks() {
+        return ignoredPathChecks;
+    }
+
+    public long getTime(Phase phase, TimeUnit unit) {
+        Long time = nanos.get(phase);
+        return unit.convert((time == null) ? 0 : time, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return every counter and the time of every phase in microseconds, e.g. {nodesVisited=1520, ..., parseMicros=310},
+     * for a metrics system
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        map.put("nodesVisited", nodesVisited);
+        map.put("levels", (long) levels);
+        map.put("pathsBuilt", pathsBuilt);
+        map.put("regexMatches", regexMatches);
+        map.put("filterEvaluations", filterEvaluations);
+        map.put("ignoredPathChecks", ignoredPathChecks);
+        for (Phase phase : Phase.values()) {
+            map.put(phase.name().toLowerCase() + "Micros", getTime(phase, TimeUnit.MICROSECONDS));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    void onNode(int depth) {
+        nodesVisited++;
+        levels = Math.max(levels, depth);
+    }
+
+    void onPathBuilt() {
+        pathsBuilt++;
+    }
+
+    void onRegexMatch() {
+        regexMatches++;
+    }
+
+    void onFilterEvaluation() {
+        filterEvaluations++;
+    }
+
+    void onIgnoredPathCheck() {
+        ignoredPathChecks++;
+    }
+
+    void addTime(Phase phase, long nanos) {
+        Long time = this.nanos.get(phase);
+        this.nanos.put(phase, (time == null) ? nanos : time + nanos);
+    }
+}
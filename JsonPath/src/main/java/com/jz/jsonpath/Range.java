@@ -97,6 +97,49 @@ public class Range implements IFilter {
         return result;
     }
 
+    /**
+     * @return true if index {@code i} of a JsonArray of {@code length} is in any of the ranges,
+     * same as {@link JsonPath#isMatchingRange(List, int, int)}.
+     */
+    public static boolean contains(List<Range> ranges, int i, int length) {
+        for (Range range : ranges) {
+            if (range.start < 0 && range.end < 0) {
+                if ((i - length) >= range.start && (i - length) <= range.end) {
+                    return true;
+                }
+            } else if (i >= range.start && i <= range.end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves ranges against a JsonArray of {@code length}, negative ranges count from the tail,
+     * same as {@link JsonPath#isMatchingRange(List, int, int)}.
+     *
+     * @return the selected indexes of the JsonArray
+     */
+    public static BitSet getIndexes(List<Range> ranges, int length) {
+        BitSet indexes = new BitSet(length);
+        for (Range range : ranges) {
+            long from = range.start;
+            long to = range.end;
+            if (range.start < 0 && range.end < 0) {
+                from += length;
+                to += length;
+            }
+
+            from = Math.max(from, 0);
+            to = Math.min(to, length - 1);
+            if (from <= to) {
+                indexes.set((int) from, (int) to + 1);
+            }
+        }
+
+        return indexes;
+    }
+
     public String toString() {
         return "Start : " + start + " , end :" + end;
     }
@@ -3,12 +3,16 @@ package com.jz.jsonpath;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class Utils {
@@ -124,25 +128,39 @@ public class Utils {
     }
 
     //    refactor, using try with resource statement
+    // read as UTF-8 like the other file and stream inputs; blank lines are skipped, they used to end the document;
     public static String convertFormattedJson2Raw(File f) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String json = br.readLine();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
             StringBuilder sb = new StringBuilder();
-            while (json != null && json.length() > 0) {
-                json = json.trim();
-                while (json.startsWith("\t")) {
-                    json = json.replaceFirst("\t", "");
-                }
-                sb.append(json);
-                json = br.readLine();
+            for (String json = br.readLine(); json != null; json = br.readLine()) {
+                sb.append(json.trim());
             }
-            br.close();
 
-            return sb.toString().trim();
+            return sb.toString();
         }
 
     }
 
+    /**
+     * @param f a UTF-8 encoded Json file
+     * @return a Reader decoding the file from its memory-mapped pages, to be closed by the caller
+     */
+    public static Reader newMappedReader(File f) throws IOException {
+        return new MappedFileReader(f);
+    }
+
+    /**
+     * Parses a file through {@link #newMappedReader(File)}, without reading it into a String first.
+     *
+     * @param f a UTF-8 encoded Json file
+     * @return the root JsonObject of the file
+     */
+    public static JsonObject parseJsonObject(File f) throws IOException {
+        try (Reader reader = newMappedReader(f)) {
+            return new JsonParser().parse(reader).getAsJsonObject();
+        }
+    }
+
 
     public static boolean allSimpleValues(JsonArray array) {
         for (int i = 0; i < array.size(); ++i) {
@@ -169,36 +187,27 @@ public class Utils {
             return result;
         }
 
-        Queue<JsonElementWithPath> queue = new LinkedList<JsonElementWithPath>();
-        queue.offer(new JsonElementWithPath(source, "$"));
+        // only the paths of JsonArrays are needed as keys, other nodes just link to their parent;
+        Queue<Map.Entry<PathNode, JsonElement>> queue = new LinkedList<>();
+        queue.offer(new AbstractMap.SimpleImmutableEntry<PathNode, JsonElement>(PathNode.ROOT, source));
         while (!queue.isEmpty()) {
             int size = queue.size();
             //Traverse by level
             for (int i = 0; i < size; i++) {
-                JsonElementWithPath org = queue.poll();
-                String currentLevel = org.getLevel();
-                JsonElement je = org.getJsonElement();
+                Map.Entry<PathNode, JsonElement> org = queue.poll();
+                PathNode currentLevel = org.getKey();
+                JsonElement je = org.getValue();
 
                 if (je.isJsonArray()) {
                     JsonArray ja = je.getAsJsonArray();
-                    result.put(currentLevel, ja);
+                    result.put(currentLevel.toString(ignoreCase), ja);
                     for (int j = 0; j < ja.size(); j++) {
-                        String level = currentLevel + "[" + j + "]";
-                        if(ignoreCase) {
-                            level = level.toLowerCase();
-                        }
-                        JsonElementWithPath tmp = new JsonElementWithPath(ja.get(j), level);
-                        queue.offer(tmp);
+                        queue.offer(new AbstractMap.SimpleImmutableEntry<>(currentLevel.child(j), ja.get(j)));
                     }
                 } else if (je.isJsonObject()) {
                     JsonObject jo = je.getAsJsonObject();
                     for (Map.Entry<String, JsonElement> entry : jo.entrySet()) {
-                        String level = currentLevel + "." + entry.getKey();
-                        if(ignoreCase) {
-                            level = level.toLowerCase();
-                        }
-                        JsonElementWithPath tmp = new JsonElementWithPath(entry.getValue(), level);
-                        queue.offer(tmp);
+                        queue.offer(new AbstractMap.SimpleImmutableEntry<>(currentLevel.child(entry.getKey()), entry.getValue()));
                     }
                 }
             }
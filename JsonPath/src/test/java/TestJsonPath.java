@@ -1,14 +1,37 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.jz.jsonpath.BulkQuery;
+import com.jz.jsonpath.CompiledJsonPath;
+import com.jz.jsonpath.FastjsonNodeModel;
+import com.jz.jsonpath.JsonDocumentIndex;
 import com.jz.jsonpath.JsonElementWithPath;
+import com.jz.jsonpath.JsonPathCache;
 import com.jz.jsonpath.JsonPath;
+import com.jz.jsonpath.NodeWithPath;
+import com.jz.jsonpath.QueryStats;
 import com.jz.jsonpath.Utils;
 import org.junit.Assert;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import static com.jz.jsonpath.JsonPath.first;
 import static com.jz.jsonpath.JsonPath.get;
 
 
@@ -191,6 +214,74 @@ public class TestJsonPath {
         Assert.assertTrue(res.size() == expectedSize);
     }
 
+    @Test
+    public void testJsonPath_ignoreCase_mixedCaseKeys() throws Exception {
+        String json = "{\"Modules\":{\"ReTurns\":{\"Value\":["
+                + "{\"Label\":\"a\",\"text\":\"Refund\"},"
+                + "{\"Label\":\"b\",\"text\":\"Return policy\"}]}}}";
+        JsonObject source = new JsonParser().parse(json).getAsJsonObject();
+
+        // the path matches keys in any case, the levels keep the keys of the document;
+        String[] paths = new String[]{
+                "returns.value[1].label"
+                , "$.MODULES.returns.VALUE[0].LABEL"
+                , "RETURNS.VALUE[?(@.text == \"Refund\")].label"
+                , "label"
+        };
+        String[] expected = new String[]{
+                "[$.Modules.ReTurns.Value[1].Label : \"b\"]"
+                , "[$.Modules.ReTurns.Value[0].Label : \"a\"]"
+                , "[$.Modules.ReTurns.Value[0].Label : \"a\"]"
+                , "[$.Modules.ReTurns.Value[0].Label : \"a\", $.Modules.ReTurns.Value[1].Label : \"b\"]"
+        };
+        for (int i = 0; i < paths.length; i++) {
+            Assert.assertEquals(paths[i], expected[i], get(source, paths[i], true, null).toString());
+            Assert.assertEquals(paths[i], "[]", get(source, paths[i], false, null).toString());
+        }
+
+        // ignored paths match in any case too;
+        Assert.assertEquals("[$.Modules.ReTurns.Value[1].Label : \"b\"]",
+                get(source, "label", true, new String[]{"modules.returns.value[0].LABEL"}).toString());
+
+        // the levels compared in any case are the whole level lowercased, e.g. the keys of the JsonArrays;
+        Assert.assertEquals("[$.modules.returns.value]", Utils.getJsonArrayMap(source, true).keySet().toString());
+        Assert.assertEquals("[$.Modules.ReTurns.Value]", Utils.getJsonArrayMap(source, false).keySet().toString());
+    }
+
+    @Test
+    public void testJsonPath_jsonArrayMap_sameKeysAsLowercasedLevels() throws Exception {
+        JsonParser parser = new JsonParser();
+        for (String file : new String[]{"./src/test/java/au.json", "./src/test/java/us.json"}) {
+            JsonObject source = parser.parse(Utils.convertFormattedJson2Raw(new File(file))).getAsJsonObject();
+
+            // the keys as they were built: the level string of every node, lowercased as a whole;
+            Map<String, JsonArray> expected = new LinkedHashMap<>();
+            Queue<JsonElementWithPath> queue = new LinkedList<>();
+            queue.offer(new JsonElementWithPath(source, "$"));
+            while (!queue.isEmpty()) {
+                JsonElementWithPath org = queue.poll();
+                JsonElement je = org.getJsonElement();
+                if (je.isJsonArray()) {
+                    expected.put(org.getLevel(), je.getAsJsonArray());
+                    for (int j = 0; j < je.getAsJsonArray().size(); j++) {
+                        queue.offer(new JsonElementWithPath(je.getAsJsonArray().get(j), (org.getLevel() + "[" + j + "]").toLowerCase()));
+                    }
+                } else if (je.isJsonObject()) {
+                    for (Map.Entry<String, JsonElement> entry : je.getAsJsonObject().entrySet()) {
+                        queue.offer(new JsonElementWithPath(entry.getValue(), (org.getLevel() + "." + entry.getKey()).toLowerCase()));
+                    }
+                }
+            }
+
+            Map<String, JsonArray> res = Utils.getJsonArrayMap(source, true);
+            Assert.assertFalse(file, expected.isEmpty());
+            Assert.assertEquals(file, new ArrayList<>(expected.keySet()), new ArrayList<>(res.keySet()));
+            for (Map.Entry<String, JsonArray> entry : expected.entrySet()) {
+                Assert.assertSame(entry.getKey(), entry.getValue(), res.get(entry.getKey()));
+            }
+        }
+    }
+
     @Test
     public void testJsonPath_ignoreCase_ignoredPaths_hasArray() throws Exception {
         JsonParser parser = new JsonParser();
@@ -231,4 +322,663 @@ public class TestJsonPath {
         Assert.assertTrue(res.size() == expectedSize);
     }
 
+    @Test
+    public void testCompiledJsonPath_reusedAcrossDocuments() throws Exception {
+        JsonParser parser = new JsonParser();
+        JsonObject us = parser.parse(Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"))).getAsJsonObject();
+        JsonObject au = parser.parse(Utils.convertFormattedJson2Raw(new File("./src/test/java/au.json"))).getAsJsonObject();
+
+        final String[] us_ignoredPaths = new String[]{
+                "PICTURE.mediaList[0].image.originalImg.URL",
+                "RETURNS.maxView.value[3].value[0].textSpans[0].action.URL"
+                , "THIRD_PARTY_RESOURCES.js[0].url"
+                , "BINSUMMARY.minView.actions[1].action.URL"
+                , "$.modules.WATCH.watching.watchAction.action.URL"
+                , "$.modules.WATCH.watch.watchAction.action.URL"
+                , "BINSUMMARY.minView.actions[2].value.cartSigninUrl.URL"
+        };
+
+        CompiledJsonPath compiled = CompiledJsonPath.compile("URL", true, us_ignoredPaths);
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(15, compiled.evaluate(us).size());
+            Assert.assertEquals(get(au, "URL", true, us_ignoredPaths).size(), compiled.evaluate(au).size());
+        }
+
+        CompiledJsonPath length = CompiledJsonPath.compile("RETURNS.maxView.value.length()");
+        List<JsonElementWithPath> res = JsonPath.get(us, length);
+        Assert.assertEquals(1, res.size());
+        Assert.assertEquals(5, res.get(0).getJsonElement().getAsInt());
+    }
+
+    @Test
+    public void testJsonPath_absolutePath_negativeIndexOnInnerArray() throws Exception {
+        JsonParser parser = new JsonParser();
+        String json = Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"));
+        JsonObject source = parser.parse(json).getAsJsonObject();
+
+        List<JsonElementWithPath> res = get(source, "modules.RETURNS.maxView.value[0,-1].value[0].textSpans");
+        System.out.println("***SIZE: " + res.size() + ";\r\n" + res);
+        Assert.assertEquals(2, res.size());
+        Assert.assertEquals("$.modules.RETURNS.maxView.value[0].value[0].textSpans", res.get(0).getLevel());
+        Assert.assertEquals("$.modules.RETURNS.maxView.value[4].value[0].textSpans", res.get(1).getLevel());
+
+        res = get(source, "modules.returns.maxview.VALUE[-2]", true, new String[]{});
+        Assert.assertEquals(1, res.size());
+        Assert.assertEquals("$.modules.RETURNS.maxView.value[3]", res.get(0).getLevel());
+    }
+
+    @Test
+    public void testJsonPath_streaming_sameAsJsonObject() throws Exception {
+        JsonParser parser = new JsonParser();
+        String json = Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"));
+        JsonObject source = parser.parse(json).getAsJsonObject();
+
+        final String[] us_paths = new String[]{
+                "$.modules.BINSUMMARY.minView.actions[0]"
+                , "modules.SELLERPRESENCE.sellerName.action.URL"
+                , "RETURNS.maxView.value.length()"
+                , "RETURNS.maxView.value[0:].label"
+                , "RETURNS.maxView.value[1,3,4].label.textSpans[?(@.text == \"Refund\" || @.text == \"Return policy\")].text"
+                , "URL"
+                , "RETURNS.maxView.value[-3:-1]"
+        };
+
+        final String[] us_ignoredPaths = new String[]{
+                "PICTURE.mediaList[0].image.originalImg.URL",
+                "RETURNS.maxView.value[3].value[0].textSpans[0].action.URL"
+                , "THIRD_PARTY_RESOURCES.js[0].url"
+                , "BINSUMMARY.minView.actions[1].action.URL"
+                , "$.modules.WATCH.watching.watchAction.action.URL"
+        };
+
+        for (boolean ignoreCase : new boolean[]{false, true}) {
+            for (String path : us_paths) {
+                List<JsonElementWithPath> expected = get(source, path, ignoreCase, us_ignoredPaths);
+                List<JsonElementWithPath> res;
+                try (InputStream in = new FileInputStream("./src/test/java/us.json")) {
+                    res = get(in, path, ignoreCase, us_ignoredPaths);
+                }
+                System.out.println("***SIZE: " + res.size() + ";" + path + ";\r\n" + res);
+                Assert.assertEquals(expected.toString(), res.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testJsonPath_getAll_sameAsGet() throws Exception {
+        JsonParser parser = new JsonParser();
+        JsonObject us = parser.parse(Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"))).getAsJsonObject();
+        JsonObject au = parser.parse(Utils.convertFormattedJson2Raw(new File("./src/test/java/au.json"))).getAsJsonObject();
+
+        final List<String> paths = Arrays.asList(
+                "$.modules.BINSUMMARY.minView.actions[0]"
+                , "modules.SELLERPRESENCE.sellerName.action.URL"
+                , "RETURNS.maxView.value.length()"
+                , "RETURNS.maxView.value[0:].label"
+                , "RETURNS.maxView.value[*].label.textSpans[0]"
+                , "RETURNS.maxView.value[1,3,4].label.textSpans[?(@.text == \"Refund\" || @.text == \"Return policy\")].text"
+                , "URL"
+                , "url"
+                , "action.URL"
+                , "textSpans[0].text"
+                , "RETURNS.maxView.value[-3:-1]"
+        );
+
+        final String[] us_ignoredPaths = new String[]{
+                "PICTURE.mediaList[0].image.originalImg.URL"
+                , "RETURNS.maxView.value[3].value[0].textSpans[0].action.URL"
+                , "THIRD_PARTY_RESOURCES.js[0].url"
+                , "BINSUMMARY.minView.actions[1].action.URL"
+                , "$.modules.WATCH.watching.watchAction.action.URL"
+        };
+
+        for (JsonObject source : new JsonObject[]{us, au}) {
+            for (boolean ignoreCase : new boolean[]{false, true}) {
+                Map<String, List<JsonElementWithPath>> res = JsonPath.getAll(source, paths, ignoreCase, us_ignoredPaths);
+                Assert.assertEquals(paths, new ArrayList<>(res.keySet()));
+                for (String path : paths) {
+                    Assert.assertEquals(get(source, path, ignoreCase, us_ignoredPaths).toString(), res.get(path).toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testJsonPath_documentIndex_sameAsGet() throws Exception {
+        JsonParser parser = new JsonParser();
+        JsonObject us = parser.parse(Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"))).getAsJsonObject();
+
+        final List<String> paths = Arrays.asList(
+                "$.modules.BINSUMMARY.minView.actions[0]"
+                , "RETURNS.maxView.value.length()"
+                , "RETURNS.maxView.value[*].label.textSpans[0]"
+                , "RETURNS.maxView.value[1,3,4].label.textSpans[?(@.text == \"Refund\" || @.text == \"Return policy\")].text"
+                , "URL"
+                , "textSpans[0].text"
+                , "RETURNS.maxView.value[-3:-1]"
+                , "url"
+                , "SELLERPRESENCE.sellerName.action.URL"
+                , "value[*].textSpans[?(@.text == \"Learn more\")].action"
+        );
+
+        final String[] us_ignoredPaths = new String[]{
+                "PICTURE.mediaList[0].image.originalImg.URL"
+                , "RETURNS.maxView.value[3].value[0].textSpans[0].action.URL"
+                , "$.modules.WATCH.watching.watchAction.action.URL"
+        };
+
+        for (JsonDocumentIndex index : new JsonDocumentIndex[]{JsonDocumentIndex.of(us), JsonDocumentIndex.of(us, true)}) {
+            for (boolean ignoreCase : new boolean[]{false, true}) {
+                Map<String, List<JsonElementWithPath>> res = JsonPath.getAll(index, paths, ignoreCase, us_ignoredPaths);
+                for (String path : paths) {
+                    String expected = get(us, path, ignoreCase, us_ignoredPaths).toString();
+                    Assert.assertEquals(expected, get(index, path, ignoreCase, us_ignoredPaths).toString());
+                    Assert.assertEquals(expected, res.get(path).toString());
+                }
+            }
+            Assert.assertTrue(index.getMemoryReport().startsWith("nodes: " + index.size()));
+        }
+    }
+
+    @Test
+    public void testJsonPath_parallel_sameAsGet() throws Exception {
+        JsonParser parser = new JsonParser();
+        JsonObject au = parser.parse(Utils.convertFormattedJson2Raw(new File("./src/test/java/au.json"))).getAsJsonObject();
+
+        final List<String> paths = Arrays.asList(
+                "$.modules.BINSUMMARY.minView.actions[0]"
+                , "RETURNS.maxView.value.length()"
+                , "RETURNS.maxView.value[*].label.textSpans[0]"
+                , "RETURNS.maxView.value[1,3,4].label.textSpans[?(@.text == \"Refund\" || @.text == \"Return policy\")].text"
+                , "URL"
+                , "textSpans[0].text"
+                , "value[-2]"
+        );
+
+        final String[] ignoredPaths = new String[]{
+                "PICTURE.mediaList[0].image.originalImg.URL"
+                , "$.modules.WATCH.watching.watchAction.action.URL"
+        };
+
+        // 1 splits every container, 1000 none;
+        for (int threshold : new int[]{1, 3, 1000}) {
+            for (boolean ignoreCase : new boolean[]{false, true}) {
+                for (String path : paths) {
+                    Assert.assertEquals(get(au, path, ignoreCase, ignoredPaths).toString(),
+                            JsonPath.getParallel(au, path, ignoreCase, ignoredPaths, threshold).toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBulkQuery_isolatesFailedDocuments() throws Exception {
+        String us = Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"));
+        String au = Utils.convertFormattedJson2Raw(new File("./src/test/java/au.json"));
+        JsonObject auObject = new JsonParser().parse(au).getAsJsonObject();
+
+        final List<String> paths = Arrays.asList(
+                "$.modules.BINSUMMARY.minView.actions[0]"
+                , "RETURNS.maxView.value[*].label.textSpans[0]"
+                , "URL"
+        );
+        final String[] ignoredPaths = new String[]{"PICTURE.mediaList[0].image.originalImg.URL"};
+
+        List<Object> sources = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sources.add(us);
+            sources.add(auObject);
+            sources.add(new StringReader(au));
+            sources.add("{\"modules\": [");
+            sources.add(i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Iterator<BulkQuery.Result> results = BulkQuery.compile(paths, true, ignoredPaths).evaluate(sources.iterator(), executor, 3);
+            boolean[] seen = new boolean[sources.size()];
+            while (results.hasNext()) {
+                BulkQuery.Result result = results.next();
+                int index = (int) result.getIndex();
+                Assert.assertFalse(seen[index]);
+                seen[index] = true;
+
+                if (index % 5 >= 3) {
+                    Assert.assertFalse(result.isSuccess());
+                    Assert.assertNotNull(result.getError());
+                    continue;
+                }
+                Assert.assertTrue(result.isSuccess());
+                Map<String, List<JsonElementWithPath>> expected = JsonPath.getAll((index % 5 == 0) ? us : au, paths, true, ignoredPaths);
+                Assert.assertEquals(expected.toString(), result.getResults().toString());
+            }
+            for (boolean b : seen) {
+                Assert.assertTrue(b);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testJsonPath_limit_firstAndExists() throws Exception {
+        JsonParser parser = new JsonParser();
+        JsonObject us = parser.parse(Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"))).getAsJsonObject();
+
+        final List<String> paths = Arrays.asList(
+                "$.modules.BINSUMMARY.minView.actions[*]"
+                , "RETURNS.maxView.value.length()"
+                , "RETURNS.maxView.value[*].label.textSpans[0]"
+                , "URL"
+                , "textSpans[0].text"
+                , "noSuchKey"
+        );
+        final String[] ignoredPaths = new String[]{
+                "COMMITTOBUY.fallBackUrl"
+                , "SELLERPRESENCE.sellerName.action.URL"
+        };
+
+        for (boolean ignoreCase : new boolean[]{false, true}) {
+            for (String path : paths) {
+                List<JsonElementWithPath> all = get(us, path, ignoreCase, ignoredPaths);
+                for (int n : new int[]{0, 1, 2, 5, 100}) {
+                    Assert.assertEquals(all.subList(0, Math.min(n, all.size())).toString(),
+                            JsonPath.limit(us, path, ignoreCase, ignoredPaths, n).toString());
+                }
+                JsonElementWithPath first = JsonPath.first(us, path, ignoreCase, ignoredPaths);
+                Assert.assertEquals(all.isEmpty() ? "null" : all.get(0).toString(), String.valueOf(first));
+                Assert.assertEquals(!all.isEmpty(), JsonPath.exists(us, path, ignoreCase, ignoredPaths));
+            }
+        }
+    }
+
+    @Test
+    public void testJsonPath_iterator_sameAsGet() throws Exception {
+        JsonParser parser = new JsonParser();
+        JsonObject us = parser.parse(Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"))).getAsJsonObject();
+
+        final List<String> paths = Arrays.asList(
+                "$.modules.BINSUMMARY.minView.actions[*]"
+                , "RETURNS.maxView.value.length()"
+                , "RETURNS.maxView.value[1,3,4].label.textSpans[?(@.text == \"Refund\" || @.text == \"Return policy\")].text"
+                , "URL"
+                , "textSpans[0].text"
+        );
+        final String[] ignoredPaths = new String[]{
+                "COMMITTOBUY.fallBackUrl"
+                , "RETURNS.maxView.value[3].value[0].textSpans[0].action.URL"
+        };
+
+        for (boolean ignoreCase : new boolean[]{false, true}) {
+            for (String path : paths) {
+                List<JsonElementWithPath> all = get(us, path, ignoreCase, ignoredPaths);
+                List<JsonElementWithPath> iterated = new ArrayList<>();
+                Iterator<JsonElementWithPath> itr = JsonPath.iterator(us, path, ignoreCase, ignoredPaths);
+                while (itr.hasNext()) {
+                    iterated.add(itr.next());
+                }
+                Assert.assertEquals(all.toString(), iterated.toString());
+                Assert.assertEquals(all.size(), JsonPath.stream(us, path, ignoreCase, ignoredPaths).count());
+            }
+        }
+
+        Assert.assertEquals("$.modules.COMMITTOBUY.thumbnail.URL",
+                JsonPath.stream(us, "URL", false, ignoredPaths).findFirst().get().getLevel());
+    }
+
+    @Test
+    public void testJsonPath_mappedFile_sameAsString() throws Exception {
+        File file = new File("./src/test/java/us.json");
+        String us = Utils.convertFormattedJson2Raw(file);
+
+        final List<String> paths = Arrays.asList(
+                "$.modules.BINSUMMARY.minView.actions[0]"
+                , "RETURNS.maxView.value.length()"
+                , "RETURNS.maxView.value[*].label.textSpans[0]"
+                , "URL"
+        );
+        final String[] ignoredPaths = new String[]{"PICTURE.mediaList[0].image.originalImg.URL"};
+
+        for (String path : paths) {
+            Assert.assertEquals(get(us, path, true, ignoredPaths).toString(), get(file, path, true, ignoredPaths).toString());
+        }
+        Assert.assertEquals(JsonPath.getAll(us, paths, true, ignoredPaths).toString(), JsonPath.getAll(file, paths, true, ignoredPaths).toString());
+        Assert.assertEquals(new JsonParser().parse(us), Utils.parseJsonObject(file));
+
+        // a blank line used to end the document;
+        File blankLines = File.createTempFile("blankLines", ".json");
+        blankLines.deleteOnExit();
+        java.nio.file.Files.write(blankLines.toPath(), "{\n\t\"a\": 1,\n\n\t\"b\": [2, 3]\n}\n".getBytes("UTF-8"));
+        Assert.assertEquals("{\"a\": 1,\"b\": [2, 3]}", Utils.convertFormattedJson2Raw(blankLines));
+        Assert.assertEquals("[$.b[1] : 3]", get(blankLines, "b[1]", false, null).toString());
+    }
+
+    @Test
+    public void testJsonPath_fastjsonBackend_sameAsGson() throws Exception {
+        String us = Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"));
+        JsonObject source = new JsonParser().parse(us).getAsJsonObject();
+        Object fastjson = FastjsonNodeModel.parse(us);
+
+        String[] paths = new String[]{
+                "$.modules.BINSUMMARY.minView.actions[0]"
+                , "RETURNS.maxView.value.length()"
+                , "RETURNS.maxView.value[0:].label"
+                , "RETURNS.maxView.value[1,3,4].label.textSpans[?(@.text == \"Refund\" || @.text == \"Return policy\")].text"
+                , "RETURNS.maxView.value[-3:-1]"
+                , "URL"
+        };
+        String[] ignoredPaths = new String[]{"PICTURE.mediaList[0].image.originalImg.URL", "$.modules.WATCH.watching.watchAction.action.URL"};
+
+        for (boolean ignoreCase : new boolean[]{false, true}) {
+            for (String path : paths) {
+                List<JsonElementWithPath> expected = get(source, path, ignoreCase, ignoredPaths);
+                List<NodeWithPath<Object>> res = CompiledJsonPath.compile(path, ignoreCase, ignoredPaths).evaluate(fastjson, FastjsonNodeModel.INSTANCE);
+                Assert.assertEquals(path, expected.size(), res.size());
+                for (int i = 0; i < res.size(); i++) {
+                    Assert.assertEquals(path, expected.get(i).getLevel(), res.get(i).getLevel());
+                    Assert.assertEquals(path, expected.get(i).getJsonElement(), new JsonParser().parse(FastjsonNodeModel.INSTANCE.toJson(res.get(i).getNode())));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testJsonPath_queryStats() throws Exception {
+        String us = Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"));
+        String[] ignoredPaths = new String[]{"PICTURE.mediaList[0].image.originalImg.URL"};
+
+        String path = "RETURNS.maxView.value[*].label.textSpans[?(@.text =~ \"(.*)\\d{3,}(.*)\" || @.text in {\"Have a nice day\", \"Return policy\"})]";
+        QueryStats stats = new QueryStats();
+        List<JsonElementWithPath> res = JsonPath.get(us, path, true, ignoredPaths, stats);
+        System.out.println(stats);
+        Assert.assertEquals(get(us, path, true, ignoredPaths).toString(), res.toString());
+        Assert.assertTrue(stats.getPathsBuilt() >= res.size());
+        Assert.assertEquals(res.size(), stats.getIgnoredPathChecks());
+        Assert.assertTrue(stats.getFilterEvaluations() > 0);
+        // "in" is cheaper than "=~" and runs first, the regex only runs when it fails;
+        Assert.assertTrue(stats.getRegexMatches() > 0 && stats.getRegexMatches() < stats.getFilterEvaluations());
+        Assert.assertTrue(stats.getNodesVisited() > stats.getFilterEvaluations());
+        Assert.assertTrue(stats.getLevels() >= 7);
+        Assert.assertTrue(stats.getTime(QueryStats.Phase.PARSE, TimeUnit.NANOSECONDS) > 0);
+        Assert.assertTrue(stats.getTime(QueryStats.Phase.TRAVERSAL, TimeUnit.NANOSECONDS) > 0);
+
+        // an absolute path only visits its own steps;
+        stats = new QueryStats();
+        res = JsonPath.get(us, "$.modules.BINSUMMARY.minView.actions[0]", false, ignoredPaths, stats);
+        Assert.assertEquals(1, res.size());
+        Assert.assertEquals(5, stats.getLevels());
+        Assert.assertEquals(5, stats.getNodesVisited());
+        Assert.assertEquals(5, stats.getPathsBuilt());
+        Assert.assertEquals(0, stats.getIgnoredPathChecks());
+        Assert.assertEquals(11, stats.toMap().size());
+
+        // null stats are not collected, like CompiledJsonPath.evaluate(source, null);
+        Assert.assertEquals(get(us, path, true, ignoredPaths).toString(), JsonPath.get(us, path, true, ignoredPaths, null).toString());
+    }
+
+    @Test
+    public void testJsonPath_pathSegments() throws Exception {
+        String us = Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"));
+        JsonObject source = new JsonParser().parse(us).getAsJsonObject();
+
+        for (String path : new String[]{"RETURNS.maxView.value[*].label.textSpans[0]", "$.modules.BINSUMMARY.minView.actions[0]"}) {
+            List<JsonElementWithPath> res = get(source, path, false, null);
+            res.addAll(JsonPath.get(JsonDocumentIndex.of(source), path));
+            Assert.assertFalse(res.isEmpty());
+            for (JsonElementWithPath je : res) {
+                JsonElementWithPath parsed = new JsonElementWithPath(je.getJsonElement(), je.getLevel());
+                Assert.assertEquals(parsed.getDepth(), je.getDepth());
+                StringBuilder level = new StringBuilder("$");
+                for (int i = 0; i < je.getDepth(); i++) {
+                    Assert.assertEquals(parsed.getKey(i), je.getKey(i));
+                    Assert.assertEquals(parsed.getIndex(i), je.getIndex(i));
+                    level.append(je.getKey(i) != null ? "." + je.getKey(i) : "[" + je.getIndex(i) + "]");
+                }
+                Assert.assertEquals(je.getLevel(), level.toString());
+                Assert.assertEquals("modules", je.getKey(0));
+            }
+        }
+
+        JsonElementWithPath je = first(source, "textSpans[0]", false, null);
+        Assert.assertEquals(0, je.getIndex(je.getDepth() - 1));
+        Assert.assertEquals("textSpans", je.getKey(je.getDepth() - 2));
+        Assert.assertEquals(-1, je.getIndex(je.getDepth() - 2));
+
+        // the level is built by the first call only;
+        Assert.assertSame(je.getLevel(), je.getLevel());
+        je.setLevel("$.modules.changed");
+        Assert.assertEquals("$.modules.changed : " + je.getJsonElement(), je.toString());
+        Assert.assertEquals("changed", je.getKey(1));
+    }
+
+    @Test
+    public void testJsonPath_largeArray_visitsSelectedIndexes() throws Exception {
+        StringBuilder json = new StringBuilder("{\"data\":{\"value\":[");
+        for (int i = 0; i < 10000; i++) {
+            json.append(i > 0 ? "," : "").append(i);
+        }
+        JsonObject source = new JsonParser().parse(json.append("]}}").toString()).getAsJsonObject();
+        JsonDocumentIndex index = JsonDocumentIndex.of(source, true);
+
+        String[] paths = new String[]{"value[1,3,4]", "value[-2]", "value[0:2]", "value[-3:-1]"};
+        String[] expected = new String[]{
+                "[$.data.value[1] : 1, $.data.value[3] : 3, $.data.value[4] : 4]"
+                , "[$.data.value[9998] : 9998]"
+                , "[$.data.value[0] : 0, $.data.value[1] : 1]"
+                , "[$.data.value[9997] : 9997, $.data.value[9998] : 9998]"
+        };
+        for (int i = 0; i < paths.length; i++) {
+            Assert.assertEquals(expected[i], get(source, paths[i], false, null).toString());
+            Assert.assertEquals(expected[i], JsonPath.get(index, paths[i]).toString());
+            Assert.assertEquals(expected[i], get(source, "$.data." + paths[i], false, null).toString());
+
+            // an absolute path only reads "data", "value" and the selected elements;
+            QueryStats stats = new QueryStats();
+            JsonPath.get(source, "$.data." + paths[i], false, null, stats);
+            Assert.assertEquals(2 + expected[i].split(",").length, stats.getNodesVisited());
+
+            // the BFS reads every element, but builds no path for the primitives it does not select;
+            stats = new QueryStats();
+            JsonPath.get(source, paths[i], false, null, stats);
+            Assert.assertEquals(2 + expected[i].split(",").length, stats.getPathsBuilt());
+        }
+    }
+
+    @Test
+    public void testJsonPathCache_hitsMissesAndEvictions() throws Exception {
+        String us = Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"));
+        String[] ignoredPaths = new String[]{"PICTURE.mediaList[0].image.originalImg.URL", "THIRD_PARTY_RESOURCES.js[0].url"};
+        String[] reordered = new String[]{"THIRD_PARTY_RESOURCES.js[0].url", "PICTURE.mediaList[0].image.originalImg.URL"};
+
+        JsonPathCache cache = JsonPathCache.maximumSize(2);
+        String expected = get(us, "URL", true, ignoredPaths).toString();
+        Assert.assertEquals(expected, cache.get("us-1", us, "URL", true, ignoredPaths).toString());
+        Assert.assertEquals(expected, cache.get("us-1", us, "URL", true, reordered).toString());
+        Assert.assertEquals(expected, cache.get("us-1", new JsonParser().parse(us).getAsJsonObject(), "URL", true, ignoredPaths).toString());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(2, cache.getHitCount());
+
+        // a hit returns copies, changing their levels does not change the cached results;
+        cache.get("us-1", us, "URL", true, ignoredPaths).get(0).setLevel("$.changed");
+        Assert.assertEquals(expected, cache.get("us-1", us, "URL", true, ignoredPaths).toString());
+
+        // the document token, ignoreCase and the path are part of the key;
+        cache.get("us-2", us, "URL", true, ignoredPaths);
+        cache.get("us-1", us, "URL", false, ignoredPaths);
+        Assert.assertEquals(3, cache.getMissCount());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(2, cache.size());
+
+        cache.invalidate("us-1");
+        Assert.assertEquals(1, cache.size());
+
+        // a failed query is not cached;
+        try {
+            cache.get("us-1", us, "textSpans.length()", false, null);
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertEquals("Please correct your json path to match a single JsonElement.", e.getMessage());
+        }
+        Assert.assertEquals(1, cache.size());
+        try {
+            cache.get("us-1", us, "textSpans.length()", false, null);
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertEquals(5, cache.getMissCount());
+        }
+
+        JsonPathCache weighed = JsonPathCache.maximumWeight(3);
+        weighed.get("us-1", us, "RETURNS.maxView.value[0:2]", false, null);
+        weighed.get("us-1", us, "RETURNS.maxView.value[-2]", false, null);
+        weighed.get("us-1", us, "RETURNS.maxView.value[-1]", false, null);
+        Assert.assertEquals(1, weighed.getEvictionCount());
+
+        // the path is compared as given, it is not trimmed, like JsonPath.get;
+        cache.invalidateAll();
+        cache.get("us-1", us, "URL", true, ignoredPaths);
+        Assert.assertEquals(get(us, " URL", true, ignoredPaths).toString(), cache.get("us-1", us, " URL", true, ignoredPaths).toString());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testJsonPath_manyIgnoredPaths() throws Exception {
+        JsonParser parser = new JsonParser();
+        String json = Utils.convertFormattedJson2Raw(new File("./src/test/java/us.json"));
+        JsonObject source = parser.parse(json).getAsJsonObject();
+
+        final String[] us_ignoredPaths = new String[]{
+                "PICTURE.mediaList[0].image.originalImg.URL",
+                "RETURNS.maxView.value[3].value[0].textSpans[0].action.URL"
+                , "THIRD_PARTY_RESOURCES.js[0].url"
+                , "BINSUMMARY.minView.actions[1].action.URL"
+                , "$.modules.WATCH.watching.watchAction.action.URL"
+                , "$.modules.WATCH.watch.watchAction.action.URL"
+                , "BINSUMMARY.minView.actions[2].value.cartSigninUrl.URL"
+        };
+
+        List<String> ignoredPaths = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ignoredPaths.add("modules.NOT_A_MODULE_" + i + ".value[" + i + "].URL");
+            ignoredPaths.add("$.modules.RETURNS.maxView.value[" + (i + 10) + "]");
+        }
+        ignoredPaths.addAll(Arrays.asList(us_ignoredPaths));
+
+        List<JsonElementWithPath> expected = get(source, "URL", true, us_ignoredPaths);
+        List<JsonElementWithPath> res = get(source, "URL", true, ignoredPaths.toArray(new String[0]));
+        Assert.assertEquals(15, res.size());
+        Assert.assertEquals(expected.toString(), res.toString());
+    }
+
+    @Test
+    public void testJsonPath_filterOperators() throws Exception {
+        String json = "{\"store\":{\"book\":["
+                + "{\"title\":\"a\",\"price\":8.95,\"n\":3,\"tags\":[\"x\",\"y\"]},"
+                + "{\"title\":\"bb\",\"price\":12.99,\"n\":10,\"tags\":[]},"
+                + "{\"title\":\"\",\"price\":22.5,\"n\":1,\"tags\":[\"z\"]}]}}";
+
+        String[] paths = new String[]{
+                "$.store.book[?(@.n < 5)]"
+                , "$.store.book[?(@.n >= 10)]"
+                , "$.store.book[?(@.price >= 12.99)]"
+                , "$.store.book[?(@.title == \"bb\")]"
+                , "$.store.book[?(@.title != \"bb\")]"
+                , "$.store.book[?(@.title =~ \"b+\")]"
+                , "$.store.book[?(@.title in {\"a\", \"bb\"})]"
+                , "$.store.book[?(@.title nin {\"a\", \"bb\"})]"
+                , "$.store.book[?(@.tags size 2)]"
+                , "$.store.book[?(@.tags empty)]"
+                , "$.store.book[?(@.title notempty)]"
+                , "$.store.book[?(@.isbn notempty)]"
+        };
+        int[] expectedSize = {2, 1, 2, 1, 2, 1, 2, 1, 1, 1, 2, 0};
+
+        for (int i = 0; i < paths.length; i++) {
+            List<JsonElementWithPath> res = JsonPath.get(json, paths[i]);
+            System.out.println("***SIZE: " + res.size() + ";" + paths[i] + ";\r\n" + res);
+            Assert.assertEquals(paths[i], expectedSize[i], res.size());
+        }
+
+        // the operand of size is checked when the path is compiled, even if no element has the member;
+        try {
+            JsonPath.get(json, "$.store.book[?(@.isbn size two)]");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("The operand of size should be an integer : two", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testJsonPath_filterPrecedence() throws Exception {
+        String json = "{\"book\":["
+                + "{\"title\":\"a\",\"price\":8,\"n\":3},"
+                + "{\"title\":\"b\",\"price\":20,\"n\":10},"
+                + "{\"title\":\"c\",\"price\":30,\"n\":1}]}";
+
+        // && binds tighter than ||, i.e. title == "a" || (price > 10 && n > 5);
+        Assert.assertEquals("[$.book[0].title : \"a\", $.book[1].title : \"b\"]",
+                JsonPath.get(json, "$.book[?(@.title == \"a\" || @.price > 10 && @.n > 5)].title").toString());
+        Assert.assertEquals("[$.book[1].title : \"b\", $.book[2].title : \"c\"]",
+                JsonPath.get(json, "$.book[?(@.price > 10 && @.n > 5 || @.title == \"c\")].title").toString());
+        Assert.assertEquals("[$.book[0].title : \"a\"]",
+                JsonPath.get(json, "book[?(@.title =~ \"[ab]\" && @.n < 5 || @.n > 100 && @.title == \"c\")].title").toString());
+    }
+
+    @Test
+    public void testJsonPath_typedComparison() throws Exception {
+        String json = "{\"item\":["
+                + "{\"id\":\"a\",\"n\":-5,\"big\":9007199254740993,\"e\":1.5e3,\"ok\":true,\"s\":\"x\\\"y\"},"
+                + "{\"id\":\"b\",\"n\":2.5,\"big\":9007199254740992,\"e\":1500.5,\"ok\":false,\"s\":\"12\"},"
+                + "{\"id\":\"c\",\"n\":10,\"big\":-1,\"e\":-2E-2,\"ok\":\"true\",\"s\":\"b\"}]}";
+
+        String[] filters = new String[]{
+                "@.n < 0", "@.n >= -5.0", "@.n > 2", "@.n == 10.0", "@.n != -5"
+                , "@.big > 9007199254740992", "@.big <= 9007199254740992"
+                , "@.e == 1500", "@.e < 0", "@.e > 1.5E3"
+                , "@.ok == true", "@.ok != true"
+                , "@.s == \"x\\\"y\"", "@.s == '12'", "@.s > 5", "@.s < \"c\""
+        };
+        String[] expected = new String[]{
+                "a", "abc", "bc", "c", "bc"
+                , "a", "bc"
+                , "a", "c", "b"
+                , "a", "bc"
+                , "a", "b", "b", "bc"
+        };
+
+        Object fastjson = FastjsonNodeModel.parse(json);
+        for (int i = 0; i < filters.length; i++) {
+            String path = "$.item[?(" + filters[i] + ")].id";
+            StringBuilder ids = new StringBuilder();
+            for (JsonElementWithPath je : JsonPath.get(json, path)) {
+                ids.append(je.getJsonElement().getAsString());
+            }
+            Assert.assertEquals(path, expected[i], ids.toString());
+
+            ids.setLength(0);
+            for (NodeWithPath<Object> node : CompiledJsonPath.compile(path).evaluate(fastjson, FastjsonNodeModel.INSTANCE)) {
+                ids.append(node.getNode());
+            }
+            Assert.assertEquals(path, expected[i], ids.toString());
+        }
+    }
+
+    @Test
+    public void testJsonPath_partialPath_filtersOnlyItsArraySteps() throws Exception {
+        JsonParser parser = new JsonParser();
+        String json = Utils.convertFormattedJson2Raw(new File("./src/test/java/au.json"));
+        JsonObject source = parser.parse(json).getAsJsonObject();
+
+        List<JsonElementWithPath> res = get(source, "textSpans[0]", false, null);
+        Assert.assertFalse(res.isEmpty());
+        for (JsonElementWithPath je : res) {
+            Assert.assertTrue(je.getLevel(), je.getLevel().endsWith(".textSpans[0]"));
+        }
+
+        res = get(source, "textSpans[?(@.text notempty)]", false, null);
+        Assert.assertFalse(res.isEmpty());
+        for (JsonElementWithPath je : res) {
+            Assert.assertFalse(je.getLevel(), je.getJsonElement().getAsJsonObject().get("text").getAsString().isEmpty());
+        }
+    }
+
 }